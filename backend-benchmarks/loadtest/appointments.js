@@ -0,0 +1,46 @@
+// Prueba de carga con k6 (https://k6.io) para comparar el modo por defecto
+// (pool de hilos de Tomcat) con el perfil virtual-threads.
+//
+//   k6 run -e BASE_URL=http://localhost:3000 -e CLIENTS=1000 backend-benchmarks/loadtest/appointments.js
+//
+// Repetir con CLIENTS=1000, 5000 y 10000 para cada modo y comparar
+// http_reqs (throughput) y http_req_duration p(99).
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:3000';
+const CLIENTS = parseInt(__ENV.CLIENTS || '1000', 10);
+const DURATION = __ENV.DURATION || '2m';
+const EMAIL = __ENV.EMAIL || 'admin@aneurysm.com';
+const PASSWORD = __ENV.PASSWORD || '123456';
+
+export const options = {
+  scenarios: {
+    dashboard: {
+      executor: 'constant-vus',
+      vus: CLIENTS,
+      duration: DURATION,
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(90)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  const res = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({ email: EMAIL, password: PASSWORD }), {
+    headers: { 'Content-Type': 'application/json' },
+  });
+  check(res, { 'login ok': (r) => r.status === 200 });
+  return { token: res.json('token') };
+}
+
+export default function (data) {
+  const params = { headers: { Authorization: `Bearer ${data.token}` } };
+
+  // Lecturas típicas de un dashboard: cada una usa una conexión JDBC
+  const responses = http.batch([
+    ['GET', `${BASE_URL}/api/users/doctors`, null, params],
+    ['GET', `${BASE_URL}/api/appointments/pending`, null, params],
+    ['GET', `${BASE_URL}/api/patients/stats`, null, params],
+  ]);
+  responses.forEach((r) => check(r, { 'status 200': (res) => res.status === 200 }));
+}
@@ -0,0 +1,41 @@
+-- Planes y tiempos de las consultas de los repositorios sobre la base sembrada con seed-appointments.sql.
+--   psql -d aineurysm_bench -f backend-benchmarks/sql/explain-access-paths.sql
+
+-- AppointmentRepository.findPageByPatientId (primera página de 50)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM appointments WHERE patient_id = (SELECT id FROM users WHERE email = 'paciente4242@correo.com')
+ORDER BY appointment_date DESC, appointment_time DESC, id DESC LIMIT 51;
+
+-- AppointmentRepository.findPageByDoctorIdAfter (página intermedia de la agenda)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM appointments WHERE doctor_id = (SELECT id FROM users WHERE email = 'doctor42@aneurysm.com') AND appointment_date >= current_date
+  AND (appointment_date > current_date OR (appointment_date = current_date AND (appointment_time > '09:00' OR (appointment_time = '09:00' AND id > 0))))
+ORDER BY appointment_date, appointment_time, id LIMIT 51;
+
+-- AppointmentRepository.findBookedTimes (disponibilidad de un médico en un día)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT appointment_time FROM appointments WHERE doctor_id = (SELECT id FROM users WHERE email = 'doctor42@aneurysm.com') AND appointment_date = current_date + 10
+  AND status IN ('pending', 'approved', 'completed', 'reschedule_requested');
+
+-- AppointmentRepository.findBookedSlotsBetween (precarga de 30 días para una especialidad)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT doctor_id, appointment_date, appointment_time FROM appointments
+WHERE doctor_id IN (SELECT id FROM users WHERE email IN ('doctor1@aneurysm.com', 'doctor5@aneurysm.com', 'doctor9@aneurysm.com', 'doctor13@aneurysm.com')) AND appointment_date BETWEEN current_date AND current_date + 30
+  AND status IN ('pending', 'approved', 'completed', 'reschedule_requested');
+
+-- AppointmentRepository.findPageByStatus (cola de pendientes del administrador)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM appointments WHERE status = 'pending' ORDER BY appointment_date, appointment_time, id LIMIT 51;
+
+-- AppointmentRepository.findBookedSlotsFrom (arranque del índice de disponibilidad)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT doctor_id, appointment_date, appointment_time FROM appointments
+WHERE appointment_date >= current_date AND status IN ('pending', 'approved', 'completed', 'reschedule_requested') AND doctor_id IS NOT NULL;
+
+-- UserRepository.findByRoleAndIsApprovedAndIsActive (médicos aprobados)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM users WHERE role = 'doctor' AND is_approved = true AND is_active = true;
+
+-- PatientService.getPatientsPage (página 100 ordenada por nombre)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM patients ORDER BY name, id OFFSET 5000 LIMIT 50;
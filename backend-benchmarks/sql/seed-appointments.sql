@@ -0,0 +1,64 @@
+-- Siembra de una base de datos de pruebas de rendimiento (PostgreSQL, esquema de db/migration).
+-- 500 médicos, 100.000 pacientes (con su cuenta de usuario) y 10.000.000 de citas; para otro
+-- tamaño, cambiar los valores de "params" en las cuatro sentencias. Las citas referencian a médicos
+-- y pacientes por users.id, contando con que cada INSERT de usuarios reciba ids consecutivos.
+--   psql -d aineurysm_bench -f backend-benchmarks/sql/seed-appointments.sql
+--
+-- Cada médico tiene 10 bloques al día, así que (médico, fecha, hora) nunca se repite y
+-- el índice uq_appointments_active_slot se cumple. Los estados siguen más o menos la
+-- proporción real: la mayoría completadas o aprobadas, un 20% pendientes.
+
+INSERT INTO users (email, password_hash, name, role, specialty, is_active, is_approved, created_at, updated_at)
+SELECT 'doctor' || d || '@aneurysm.com',
+       '$2a$10$7EqJtq98hPqEX7fNZaFWoOa5Za0WwG2v8J6Tg6F0Zp5uY5Z5Z5Z5u',
+       'Dr. ' || d,
+       'doctor',
+       (ARRAY['Neurología', 'Neurocirugía', 'Radiología', 'Cardiología'])[1 + d % 4],
+       true,
+       d % 20 <> 0,
+       now(), now()
+FROM (SELECT 500 AS doctors) AS params, generate_series(1, params.doctors) AS d;
+
+INSERT INTO users (email, password_hash, name, role, is_active, is_approved, created_at, updated_at)
+SELECT 'paciente' || p || '@correo.com',
+       '$2a$10$7EqJtq98hPqEX7fNZaFWoOa5Za0WwG2v8J6Tg6F0Zp5uY5Z5Z5Z5u',
+       'Paciente ' || p,
+       'patient',
+       true, true,
+       now(), now()
+FROM (SELECT 100000 AS patients) AS params, generate_series(1, params.patients) AS p;
+
+INSERT INTO patients (name, email, phone, status, total_analyses, last_analysis_result, next_appointment,
+                      created_at, updated_at, search_text)
+SELECT 'Paciente ' || p,
+       'paciente' || p || '@correo.com',
+       '+34 600 ' || lpad((p % 1000000)::text, 6, '0'),
+       CASE WHEN p % 10 = 0 THEN 'INACTIVE' ELSE 'ACTIVE' END,
+       p % 7,
+       (ARRAY['NORMAL', 'ABNORMAL', 'PENDING'])[1 + p % 3],
+       CASE WHEN p % 4 = 0 THEN now() + (p % 60) * interval '1 day' END,
+       now(), now(),
+       'paciente ' || p || ' paciente' || p || '@correo.com'
+FROM (SELECT 100000 AS patients) AS params, generate_series(1, params.patients) AS p;
+
+INSERT INTO appointments (appointment_date, appointment_time, doctor_id, patient_id, doctor_name, doctor_specialty,
+                          patient_name, patient_email, status, created_at, updated_at, version)
+SELECT current_date - 1500 + (n / params.doctors / 10)::int,
+       time '09:00' + ((n / params.doctors) % 10) * interval '1 hour',
+       params.first_doctor + n % params.doctors,
+       params.first_patient + (n::bigint * 7919) % params.patients,
+       'Dr. ' || (1 + n % params.doctors),
+       (ARRAY['Neurología', 'Neurocirugía', 'Radiología', 'Cardiología'])[1 + (1 + n % params.doctors) % 4],
+       'Paciente ' || (1 + n % params.patients),
+       'paciente' || (1 + (n::bigint * 7919) % params.patients) || '@correo.com',
+       (ARRAY['completed', 'completed', 'completed', 'approved', 'approved',
+              'cancelled', 'rejected', 'reschedule_requested', 'pending', 'pending'])[1 + (n / 7) % 10],
+       now(), now(), 0
+FROM (SELECT 500 AS doctors, 100000 AS patients, 10000000 AS appointments,
+             (SELECT min(id) FROM users WHERE email = 'doctor1@aneurysm.com') AS first_doctor,
+             (SELECT min(id) FROM users WHERE email = 'paciente1@correo.com') AS first_patient) AS params,
+     generate_series(0, params.appointments - 1) AS n;
+
+ANALYZE users;
+ANALYZE patients;
+ANALYZE appointments;
@@ -0,0 +1,101 @@
+package com.aineurysm.benchmarks;
+
+import com.aineurysm.dto.AuthResponse;
+import com.aineurysm.dto.LoginRequest;
+import com.aineurysm.dto.RegisterRequest;
+import com.aineurysm.model.Appointment;
+import com.aineurysm.service.AppointmentService;
+import com.aineurysm.service.AuthService;
+import com.aineurysm.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reserva de citas y login de extremo a extremo a través de los servicios, contra H2 embebida
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+
+    private static final String DOCTOR_EMAIL = "doctor.bench@example.com";
+
+    private static final String EMAIL = "paciente.bench@example.com";
+
+    private static final String PASSWORD = "123456";
+
+    private ConfigurableApplicationContext context;
+
+    private AppointmentService appointmentService;
+
+    private AuthService authService;
+
+    private Long doctorId;
+
+    private LocalDate takenDate;
+
+    // Cada reserva usa un bloque distinto: 24 bloques de una hora por día a partir de mañana
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = EmbeddedBackend.start("booking");
+        appointmentService = context.getBean(AppointmentService.class);
+        authService = context.getBean(AuthService.class);
+
+        authService.register(new RegisterRequest("Paciente Bench", EMAIL, PASSWORD, PASSWORD, "patient"));
+        doctorId = authService.register(new RegisterRequest("Dr. Benchmark", DOCTOR_EMAIL, PASSWORD, PASSWORD, "doctor"))
+            .getUser().getId();
+        context.getBean(UserService.class).approveDoctor(doctorId);
+
+        takenDate = LocalDate.now().minusDays(1);
+        appointmentService.createAppointment(appointment(takenDate, LocalTime.of(9, 0)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Appointment bookFreeSlot() {
+        long slot = nextSlot.getAndIncrement();
+        LocalDate date = LocalDate.now().plusDays(1 + slot / 24);
+        LocalTime time = LocalTime.of((int) (slot % 24), 0);
+        return appointmentService.createAppointment(appointment(date, time));
+    }
+
+    // Conflicto: el índice de disponibilidad responde sin tocar la base de datos
+    @Benchmark
+    @Threads(4)
+    public boolean bookTakenSlot() {
+        try {
+            appointmentService.createAppointment(appointment(takenDate, LocalTime.of(9, 0)));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public AuthResponse login() {
+        return authService.login(new LoginRequest(EMAIL, PASSWORD));
+    }
+
+    private Appointment appointment(LocalDate date, LocalTime time) {
+        Appointment appointment = new Appointment();
+        appointment.setDate(date);
+        appointment.setTime(time);
+        appointment.setDoctorId(doctorId);
+        appointment.setPatientName("Paciente Bench");
+        appointment.setPatientEmail(EMAIL);
+        return appointment;
+    }
+}
@@ -0,0 +1,48 @@
+package com.aineurysm.benchmarks;
+
+import com.aineurysm.dto.AppointmentResponse;
+import com.aineurysm.dto.PatientResponse;
+import com.aineurysm.dto.UserResponse;
+import com.aineurysm.model.Appointment;
+import com.aineurysm.model.Patient;
+import com.aineurysm.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    private Appointment appointment;
+
+    private Patient patient;
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        appointment = Fixtures.appointment(1);
+        patient = Fixtures.patient(1);
+        user = Fixtures.doctor(1);
+    }
+
+    @Benchmark
+    public AppointmentResponse appointmentResponse() {
+        return new AppointmentResponse(appointment);
+    }
+
+    @Benchmark
+    public PatientResponse patientResponse() {
+        return new PatientResponse(patient);
+    }
+
+    @Benchmark
+    public UserResponse userResponse() {
+        return new UserResponse(user);
+    }
+}
@@ -0,0 +1,36 @@
+package com.aineurysm.benchmarks;
+
+import com.aineurysm.AiNeurysmApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Arranca el backend sin servidor web sobre H2 en modo PostgreSQL.
+// Se pasan como argumentos de línea de comandos para que tengan prioridad sobre application.yml.
+final class EmbeddedBackend {
+
+    private EmbeddedBackend() {}
+
+    static ConfigurableApplicationContext start(String databaseName) {
+        return new SpringApplicationBuilder(AiNeurysmApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.show-sql=false",
+                // Las migraciones usan índices parciales y pg_trgm, que H2 no soporta
+                "--spring.flyway.enabled=false",
+                // Sin migraciones no hay tabla collection_versions; con una sola instancia basta la memoria
+                "--app.etags.store=memory",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.aineurysm=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--jwt.secret=" + JwtBenchmark.SECRET
+            );
+    }
+}
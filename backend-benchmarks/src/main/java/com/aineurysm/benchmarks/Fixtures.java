@@ -0,0 +1,53 @@
+package com.aineurysm.benchmarks;
+
+import com.aineurysm.model.Appointment;
+import com.aineurysm.model.Patient;
+import com.aineurysm.model.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Entidades de ejemplo compartidas por los benchmarks sin base de datos
+final class Fixtures {
+
+    private Fixtures() {}
+
+    static Appointment appointment(long id) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setDate(LocalDate.of(2025, 3, 1).plusDays(id % 60));
+        appointment.setTime(LocalTime.of(9 + (int) (id % 8), 0));
+        appointment.setDoctorId(7L);
+        appointment.setDoctorName("Dra. Ana Martínez");
+        appointment.setDoctorSpecialty("Neurología");
+        appointment.setPatientId(1000 + id);
+        appointment.setPatientName("Paciente " + id);
+        appointment.setPatientEmail("paciente" + id + "@example.com");
+        appointment.setStatus(Appointment.AppointmentStatus.pending);
+        appointment.setCreatedAt(LocalDateTime.of(2025, 2, 1, 10, 30));
+        appointment.setUpdatedAt(LocalDateTime.of(2025, 2, 1, 10, 30));
+        return appointment;
+    }
+
+    static Patient patient(long id) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.setName("José Pérez " + id);
+        patient.setEmail("jose" + id + "@example.com");
+        patient.setPhone("+34 600 000 000");
+        patient.setStatus(Patient.PatientStatus.ACTIVE);
+        patient.setTotalAnalyses(3);
+        patient.setLastAnalysisResult(Patient.AnalysisResult.NORMAL);
+        patient.setLastVisit(LocalDateTime.of(2025, 1, 15, 9, 0));
+        return patient;
+    }
+
+    static User doctor(long id) {
+        User user = new User("doctor" + id + "@example.com", "$2a$10$hash", "Dr. " + id, "doctor");
+        user.setId(id);
+        user.setSpecialty("Neurología");
+        user.setIsApproved(true);
+        return user;
+    }
+}
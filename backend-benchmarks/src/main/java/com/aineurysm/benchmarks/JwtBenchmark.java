@@ -0,0 +1,78 @@
+package com.aineurysm.benchmarks;
+
+import com.aineurysm.security.JwtTokenProvider;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    static final String SECRET = "clave_secreta_de_benchmark_con_al_menos_512_bits_para_el_algoritmo_HS512_del_proveedor_jwt_0123456789";
+
+    private static final String EMAIL = "bench@aneurysm.com";
+
+    private JwtTokenProvider cachedProvider;
+
+    private JwtTokenProvider uncachedProvider;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        cachedProvider = provider(10000);
+        uncachedProvider = provider(0);
+        token = cachedProvider.generateToken(EMAIL);
+    }
+
+    static JwtTokenProvider provider(long tokenCacheMaxSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", 86400000);
+        ReflectionTestUtils.setField(provider, "tokenCacheMaxSize", tokenCacheMaxSize);
+        ReflectionTestUtils.setField(provider, "meterRegistry", new SimpleMeterRegistry());
+        provider.init();
+        return provider;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachedProvider.generateToken(EMAIL);
+    }
+
+    // Coste por petición antes de parseToken: clave reconstruida y dos verificaciones completas
+    @Benchmark
+    public String authenticateLegacy() {
+        Jwts.parser()
+            .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .build()
+            .parseSignedClaims(token);
+        return Jwts.parser()
+            .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .build()
+            .parseSignedClaims(token)
+            .getPayload()
+            .getSubject();
+    }
+
+    // Una verificación con clave y parser reutilizados, sin caché de tokens
+    @Benchmark
+    public String authenticateUncached() {
+        return uncachedProvider.parseToken(token).getSubject();
+    }
+
+    // Token ya verificado: solo digest SHA-256 y búsqueda en la caché
+    @Benchmark
+    public String authenticateCached() {
+        return cachedProvider.parseToken(token).getSubject();
+    }
+}
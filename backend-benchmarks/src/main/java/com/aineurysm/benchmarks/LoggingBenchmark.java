@@ -0,0 +1,192 @@
+package com.aineurysm.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.util.Duration;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.MDC;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Coste del logging por petición de login con varios hilos escribiendo a la vez.
+// Todas las variantes escriben en un fichero temporal en lugar de la terminal.
+//  - systemOut: las líneas System.out.println que tenía AuthController/AuthService
+//  - syncText: logback síncrono con el patrón de texto (cada hilo espera a la escritura)
+//  - asyncText: mismo patrón detrás del ring buffer (perfil por defecto)
+//  - asyncJsonProd: JSON detrás del ring buffer con nivel INFO (perfil prod)
+//  - prodDebugDisabled: una llamada debug con nivel INFO; el mensaje no llega a formatearse
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final String EMAIL = "paciente@aneurysm.com";
+
+    private static final String ROLE = "patient";
+
+    private PrintStream originalOut;
+
+    private File systemOutFile;
+
+    private LoggerContext syncContext;
+
+    private LoggerContext asyncContext;
+
+    private LoggerContext prodContext;
+
+    private Logger syncLogger;
+
+    private Logger asyncLogger;
+
+    private Logger prodLogger;
+
+    @Setup
+    public void setup() throws IOException {
+        originalOut = System.out;
+        systemOutFile = Files.createTempFile("logging-benchmark-stdout", ".log").toFile();
+        System.setOut(new PrintStream(new FileOutputStream(systemOutFile), true));
+
+        syncContext = context();
+        syncLogger = logger(syncContext, Level.DEBUG, fileAppender(syncContext, textEncoder(syncContext)));
+
+        asyncContext = context();
+        asyncLogger = logger(asyncContext, Level.DEBUG,
+                ringBuffer(asyncContext, fileAppender(asyncContext, textEncoder(asyncContext))));
+
+        prodContext = context();
+        prodLogger = logger(prodContext, Level.INFO,
+                ringBuffer(prodContext, fileAppender(prodContext, jsonEncoder(prodContext))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+        syncContext.stop();
+        asyncContext.stop();
+        prodContext.stop();
+        systemOutFile.delete();
+    }
+
+    // Cada hilo de JMH hace de hilo de petición con su requestId en el MDC (RequestIdFilter)
+    @State(Scope.Thread)
+    public static class RequestThread {
+        @Setup
+        public void setup() {
+            MDC.put("requestId", Long.toHexString(Thread.currentThread().getId()));
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.remove("requestId");
+        }
+    }
+
+    @Benchmark
+    public void systemOut() {
+        System.out.println("=== LOGIN REQUEST ===");
+        System.out.println("Email: " + EMAIL);
+        System.out.println("User isActive: " + true);
+        System.out.println("User role: " + ROLE);
+        System.out.println("User isApproved: " + true);
+        System.out.println("Generando token para: " + EMAIL);
+        System.out.println("Login successful for: " + EMAIL);
+    }
+
+    @Benchmark
+    public void syncText(RequestThread thread) {
+        loginEvents(syncLogger);
+    }
+
+    @Benchmark
+    public void asyncText(RequestThread thread) {
+        loginEvents(asyncLogger);
+    }
+
+    @Benchmark
+    public void asyncJsonProd(RequestThread thread) {
+        loginEvents(prodLogger);
+    }
+
+    @Benchmark
+    public void prodDebugDisabled(RequestThread thread) {
+        prodLogger.debug("Login rechazado {} {}", kv("email", EMAIL), kv("reason", "inactive"));
+    }
+
+    // Las llamadas que hace ahora el login: una debug (descartada en prod) y una info
+    private static void loginEvents(Logger logger) {
+        logger.debug("Login rechazado {} {}", kv("email", EMAIL), kv("reason", "inactive"));
+        logger.info("Login correcto {} {}", kv("email", EMAIL), kv("role", ROLE));
+    }
+
+    private static LoggerContext context() {
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(MDC.getMDCAdapter());
+        context.start();
+        return context;
+    }
+
+    private static Logger logger(LoggerContext context, Level level, Appender<ILoggingEvent> appender) {
+        Logger logger = context.getLogger("com.aineurysm.service.AuthService");
+        logger.setLevel(level);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private static Encoder<ILoggingEvent> textEncoder(LoggerContext context) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%X{requestId:-}] %t %logger{39} : %m%n");
+        encoder.start();
+        return encoder;
+    }
+
+    private static Encoder<ILoggingEvent> jsonEncoder(LoggerContext context) {
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        return encoder;
+    }
+
+    private static Appender<ILoggingEvent> fileAppender(LoggerContext context, Encoder<ILoggingEvent> encoder)
+            throws IOException {
+        File file = Files.createTempFile("logging-benchmark", ".log").toFile();
+        file.deleteOnExit();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.getAbsolutePath());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    // Misma configuración que logback-spring.xml: el evento se descarta si el buffer está lleno
+    private static Appender<ILoggingEvent> ringBuffer(LoggerContext context, Appender<ILoggingEvent> delegate) {
+        LoggingEventAsyncDisruptorAppender appender = new LoggingEventAsyncDisruptorAppender();
+        appender.setContext(context);
+        appender.setRingBufferSize(8192);
+        appender.setAppendTimeout(Duration.buildByMilliseconds(0));
+        appender.addAppender(delegate);
+        appender.start();
+        return appender;
+    }
+}
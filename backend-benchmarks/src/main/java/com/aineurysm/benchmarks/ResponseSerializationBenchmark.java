@@ -0,0 +1,64 @@
+package com.aineurysm.benchmarks;
+
+import com.aineurysm.dto.AppointmentResponse;
+import com.aineurysm.dto.PatientResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Serialización de los sobres Map<String, Object> que devuelven los controladores
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"1", "50", "200"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+
+    private Map<String, Object> appointmentEnvelope;
+
+    private Map<String, Object> patientEnvelope;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+
+        List<AppointmentResponse> appointments = LongStream.rangeClosed(1, rows)
+            .mapToObj(id -> new AppointmentResponse(Fixtures.appointment(id)))
+            .collect(Collectors.toList());
+        appointmentEnvelope = new HashMap<>();
+        appointmentEnvelope.put("success", true);
+        appointmentEnvelope.put("data", appointments);
+        appointmentEnvelope.put("nextCursor", null);
+
+        List<PatientResponse> patients = LongStream.rangeClosed(1, rows)
+            .mapToObj(id -> new PatientResponse(Fixtures.patient(id)))
+            .collect(Collectors.toList());
+        patientEnvelope = new HashMap<>();
+        patientEnvelope.put("success", true);
+        patientEnvelope.put("data", patients);
+        patientEnvelope.put("total", patients.size());
+    }
+
+    @Benchmark
+    public byte[] appointmentEnvelope() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(appointmentEnvelope);
+    }
+
+    @Benchmark
+    public byte[] patientEnvelope() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(patientEnvelope);
+    }
+}
@@ -2,15 +2,21 @@ package com.aineurysm;
 
 import com.aineurysm.model.User;
 import com.aineurysm.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @SpringBootApplication
+@EnableScheduling
 public class AiNeurysmApplication {
 
+	private static final Logger logger = LoggerFactory.getLogger(AiNeurysmApplication.class);
+
 	public static void main(String[] args) {
 		SpringApplication.run(AiNeurysmApplication.class, args);
 	}
@@ -28,7 +34,7 @@ public class AiNeurysmApplication {
 				admin.setIsActive(true);
 				admin.setIsApproved(true);
 				userRepository.save(admin);
-				System.out.println("Usuario administrador creado: admin@aneurysm.com / 123456");
+				logger.info("Usuario administrador creado: admin@aneurysm.com / 123456");
 			}
 		};
 	}
@@ -0,0 +1,24 @@
+package com.aineurysm.config;
+
+import com.aineurysm.metrics.RequestQueryStats;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    // Engancha los contadores por petición a Hibernate: sentencias preparadas y entidades cargadas
+    @Bean
+    public HibernatePropertiesCustomizer requestQueryStatsCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new RequestQueryStats.StatementCounter());
+            properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(new RequestQueryStats.EntityLoadIntegrator()));
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.aineurysm.controller;
+
+import com.aineurysm.dto.AnalysisJobResponse;
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.service.AnalysisQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+// Análisis de IA asíncronos: el POST solo encola (202) y el resultado llega al paciente
+// (last_analysis_result, total_analyses) cuando un worker termina. Mientras tanto el paciente
+// está en PENDING y el estado del trabajo se consulta con GET /api/analyses/{id}.
+@RestController
+@RequestMapping("/api/analyses")
+@CrossOrigin(origins = "http://localhost:8080")
+public class AnalysisController {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @Autowired
+    private AnalysisQueue analysisQueue;
+
+    @PostMapping(consumes = "multipart/form-data")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> requestAnalysis(@RequestParam Long patientId,
+            @RequestParam("file") MultipartFile file) {
+        try {
+            AnalysisJob job = analysisQueue.enqueue(patientId, file);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", new AnalysisJobResponse(job));
+            response.put("message", "Análisis en cola");
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (RejectedExecutionException e) {
+            // Cola llena: el cliente vuelve a intentarlo más tarde
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "60").body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error al solicitar el análisis: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAnalysis(@PathVariable Long id) {
+        try {
+            AnalysisJob job = analysisQueue.getJob(id)
+                .orElseThrow(() -> new RuntimeException("Análisis no encontrado"));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", new AnalysisJobResponse(job));
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error al obtener el análisis: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    // Los más recientes primero: de un paciente (?patientId=) o en un estado (?status=dead para los descartados)
+    @GetMapping
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getAnalyses(
+            @RequestParam(required = false) Long patientId,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            AnalysisJob.Status jobStatus = status != null ? AnalysisJob.Status.valueOf(status.trim().toUpperCase(Locale.ROOT)) : null;
+            List<AnalysisJobResponse> jobs = analysisQueue.getJobs(patientId, jobStatus, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)))
+                .stream()
+                .map(AnalysisJobResponse::new)
+                .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", jobs);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error al obtener análisis: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    // Vuelve a encolar un análisis descartado tras agotar los reintentos
+    @PostMapping("/{id}/retry")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> retryAnalysis(@PathVariable Long id) {
+        try {
+            AnalysisJob job = analysisQueue.retry(id);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", new AnalysisJobResponse(job));
+            response.put("message", "Análisis en cola de nuevo");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error al reintentar el análisis: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+}
@@ -1,48 +1,117 @@
 package com.aineurysm.controller;
 
+import com.aineurysm.dto.AppointmentCursor;
 import com.aineurysm.dto.AppointmentRequest;
 import com.aineurysm.dto.AppointmentResponse;
+import com.aineurysm.dto.AvailableSlotResponse;
+import com.aineurysm.dto.BulkStatusRequest;
+import com.aineurysm.dto.BulkStatusResult;
+import com.aineurysm.dto.SyncBatch;
+import com.aineurysm.dto.SyncToken;
 import com.aineurysm.model.Appointment;
+import com.aineurysm.model.User;
+import com.aineurysm.service.AppointmentEventBroadcaster;
 import com.aineurysm.service.AppointmentService;
+import com.aineurysm.service.CollectionVersions;
+import com.aineurysm.service.ExportService;
+import com.aineurysm.service.IdempotencyStore;
+import com.aineurysm.service.SyncService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
 @RestController
 @RequestMapping("/api/appointments")
 @CrossOrigin(origins = "http://localhost:8080")
 public class AppointmentController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // El navegador guarda la respuesta pero la revalida siempre con If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private AppointmentService appointmentService;
 
-    @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllAppointments() {
-        try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String userEmail = auth.getName();
+    @Autowired
+    private AppointmentEventBroadcaster eventBroadcaster;
 
-            List<Appointment> appointments = appointmentService.getAppointmentsByPatientEmail(userEmail);
-            
-            List<AppointmentResponse> appointmentResponses = appointments.stream()
-                .map(AppointmentResponse::new)
-                .collect(Collectors.toList());
+    @Autowired
+    private SyncService syncService;
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", appointmentResponses);
+    @Autowired
+    private CollectionVersions collectionVersions;
 
-            return ResponseEntity.ok(response);
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ExportService exportService;
+
+    // Con ?since=<token> devuelve solo lo creado, modificado o borrado desde ese token
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getAllAppointments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        try {
+            if (since != null) {
+                return changesResponse(since, null, currentUser().getId(), limit);
+            }
+            String etag = collectionVersions.etag(CollectionVersions.APPOINTMENTS, "patient", currentUser().getId(), cursor, limit);
+            if (collectionVersions.checkNotModified(request, CollectionVersions.APPOINTMENTS, etag)) {
+                return null;
+            }
+            int pageSize = pageSize(limit);
+            SyncToken syncToken = cursor == null ? syncService.currentToken() : null;
+            List<Appointment> appointments = appointmentService.getAppointmentsPageByPatient(
+                currentUser().getId(), AppointmentCursor.decode(cursor), pageSize);
+
+            return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag)
+                .body(pageResponse(appointments, pageSize, syncToken));
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -51,55 +120,114 @@ public class AppointmentController {
         }
     }
 
-    @GetMapping("/doctor/{doctorName}")
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllAppointments() {
+        Long patientId = currentUser().getId();
+        return ndjson(action -> appointmentService.streamAppointmentsByPatient(patientId, action));
+    }
+
+    @GetMapping("/doctor/{doctorId}")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getAppointmentsByDoctor(@PathVariable String doctorName) {
+    public ResponseEntity<Map<String, Object>> getAppointmentsByDoctor(
+            @PathVariable Long doctorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
         try {
-            List<Appointment> appointments = appointmentService.getAppointmentsByDoctor(doctorName);
-            
-            List<AppointmentResponse> appointmentResponses = appointments.stream()
-                .map(AppointmentResponse::new)
-                .collect(Collectors.toList());
+            if (since != null) {
+                return changesResponse(since, doctorId, null, limit);
+            }
+            String etag = collectionVersions.etag(CollectionVersions.APPOINTMENTS, "doctor", doctorId, cursor, limit);
+            if (collectionVersions.checkNotModified(request, CollectionVersions.APPOINTMENTS, etag)) {
+                return null;
+            }
+            int pageSize = pageSize(limit);
+            SyncToken syncToken = cursor == null ? syncService.currentToken() : null;
+            List<Appointment> appointments = appointmentService.getAppointmentsPageByDoctor(
+                doctorId, AppointmentCursor.decode(cursor), pageSize);
+
+            return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag)
+                .body(pageResponse(appointments, pageSize, syncToken));
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error al obtener citas del doctor: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    // Cambios de citas en tiempo real: created, approved, rejected, cancelled, reschedule_requested, completed.
+    // Los administradores reciben todas; médicos y pacientes, solo las suyas.
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToEvents() {
+        try {
+            User user = currentUser();
+            return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(eventBroadcaster.subscribe(user.getId(), user.getRole()));
+        } catch (Exception e) {
+            // Límite de conexiones alcanzado: el cliente vuelve a intentarlo más tarde
+            logger.warn("Suscripción a eventos rechazada {}", kv("error", e.getMessage()));
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Object>> getAvailability(
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) String specialty,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<AvailableSlotResponse> slots = appointmentService.findAvailableSlots(
+                doctorId,
+                specialty,
+                from != null ? LocalDate.parse(from) : null,
+                to != null ? LocalDate.parse(to) : null,
+                Math.min(limit, 100)
+            );
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", appointmentResponses);
+            response.put("data", slots);
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
-            errorResponse.put("message", "Error al obtener citas del doctor: " + e.getMessage());
+            errorResponse.put("message", "Error al buscar horarios disponibles: " + e.getMessage());
             return ResponseEntity.badRequest().body(errorResponse);
         }
     }
 
+    // Con Idempotency-Key, un reintento de la misma reserva recibe la respuesta original
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createAppointment(@RequestBody AppointmentRequest request) {
-        try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String userEmail = auth.getName();
-
-            System.out.println("=== CREATE APPOINTMENT REQUEST ===");
-            System.out.println("Date: " + request.getDate());
-            System.out.println("Time: " + request.getTime());
-            System.out.println("Doctor: " + request.getDoctorName());
-            System.out.println("Patient Email: " + userEmail);
+    public ResponseEntity<?> createAppointment(@RequestBody AppointmentRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        User patient = currentUser();
+        return idempotencyStore.execute("appointments", patient.getId(), idempotencyKey, request,
+            () -> createAppointment(request, patient));
+    }
 
+    private ResponseEntity<Map<String, Object>> createAppointment(AppointmentRequest request, User patient) {
+        try {
             Appointment appointment = new Appointment();
             appointment.setDate(LocalDate.parse(request.getDate()));
             appointment.setTime(LocalTime.parse(request.getTime()));
+            appointment.setDoctorId(request.getDoctorId());
             appointment.setDoctorName(request.getDoctorName());
             appointment.setDoctorSpecialty(request.getDoctorSpecialty());
+            appointment.setPatientId(patient.getId());
             appointment.setPatientName(request.getPatientName());
-            appointment.setPatientEmail(userEmail);
-            
-            System.out.println("Setting status to: " + Appointment.AppointmentStatus.pending);
+            appointment.setPatientEmail(patient.getEmail());
             appointment.setStatus(Appointment.AppointmentStatus.pending);
 
-            System.out.println("About to save appointment...");
             Appointment savedAppointment = appointmentService.createAppointment(appointment);
-            System.out.println("Appointment saved successfully with ID: " + savedAppointment.getId());
+            logger.info("Cita creada {} {} {} {}", kv("appointmentId", savedAppointment.getId()),
+                    kv("doctorId", savedAppointment.getDoctorId()), kv("date", savedAppointment.getDate()),
+                    kv("time", savedAppointment.getTime()));
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -108,6 +236,8 @@ public class AppointmentController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
+            logger.debug("Cita rechazada {} {} {} {}", kv("doctorId", request.getDoctorId()),
+                    kv("date", request.getDate()), kv("time", request.getTime()), kv("error", e.getMessage()));
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", e.getMessage());
@@ -116,13 +246,10 @@ public class AppointmentController {
     }
 
     @PutMapping("/{id}/cancel")
-    public ResponseEntity<Map<String, Object>> cancelAppointment(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> cancelAppointment(@PathVariable Long id,
+            @RequestParam(required = false) Long version) {
         try {
-            Appointment appointment = appointmentService.getAppointmentById(id)
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
-
-            appointment.setStatus(Appointment.AppointmentStatus.cancelled);
-            appointmentService.updateAppointment(appointment);
+            appointmentService.transitionStatus(id, Appointment.AppointmentStatus.cancelled, version);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -137,21 +264,36 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping(value = "/doctor/{doctorId}", produces = NDJSON)
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamAppointmentsByDoctor(@PathVariable Long doctorId) {
+        return ndjson(action -> appointmentService.streamAppointmentsByDoctor(doctorId, action));
+    }
+
+    // Con ?since= devuelve los cambios de todas las citas, en cualquier estado: el cliente
+    // quita de la cola las que ya no están pendientes
     @GetMapping("/pending")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getPendingAppointments() {
+    public ResponseEntity<Map<String, Object>> getPendingAppointments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
         try {
-            List<Appointment> appointments = appointmentService.getAppointmentsByStatus(Appointment.AppointmentStatus.pending);
-            
-            List<AppointmentResponse> appointmentResponses = appointments.stream()
-                .map(AppointmentResponse::new)
-                .collect(Collectors.toList());
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", appointmentResponses);
-
-            return ResponseEntity.ok(response);
+            if (since != null) {
+                return changesResponse(since, null, null, limit);
+            }
+            String etag = collectionVersions.etag(CollectionVersions.APPOINTMENTS, "pending", cursor, limit);
+            if (collectionVersions.checkNotModified(request, CollectionVersions.APPOINTMENTS, etag)) {
+                return null;
+            }
+            int pageSize = pageSize(limit);
+            SyncToken syncToken = cursor == null ? syncService.currentToken() : null;
+            List<Appointment> appointments = appointmentService.getAppointmentsPageByStatus(
+                Appointment.AppointmentStatus.pending, AppointmentCursor.decode(cursor), pageSize);
+
+            return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag)
+                .body(pageResponse(appointments, pageSize, syncToken));
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -160,15 +302,18 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping(value = "/pending", produces = NDJSON)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamPendingAppointments() {
+        return ndjson(action -> appointmentService.streamAppointmentsByStatus(Appointment.AppointmentStatus.pending, action));
+    }
+
     @PutMapping("/{id}/approve")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> approveAppointment(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> approveAppointment(@PathVariable Long id,
+            @RequestParam(required = false) Long version) {
         try {
-            Appointment appointment = appointmentService.getAppointmentById(id)
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
-
-            appointment.setStatus(Appointment.AppointmentStatus.approved);
-            appointmentService.updateAppointment(appointment);
+            appointmentService.transitionStatus(id, Appointment.AppointmentStatus.approved, version);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -185,13 +330,10 @@ public class AppointmentController {
 
     @PutMapping("/{id}/reject")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> rejectAppointment(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> rejectAppointment(@PathVariable Long id,
+            @RequestParam(required = false) Long version) {
         try {
-            Appointment appointment = appointmentService.getAppointmentById(id)
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
-
-            appointment.setStatus(Appointment.AppointmentStatus.rejected);
-            appointmentService.updateAppointment(appointment);
+            appointmentService.transitionStatus(id, Appointment.AppointmentStatus.rejected, version);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -205,20 +347,25 @@ public class AppointmentController {
             return ResponseEntity.badRequest().body(errorResponse);
         }
     }
-    }
 
-    @PutMapping("/{id}/request-reschedule")
-    public ResponseEntity<Map<String, Object>> requestReschedule(@PathVariable Long id) {
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> bulkUpdateStatus(@RequestBody BulkStatusRequest request) {
         try {
-            Appointment appointment = appointmentService.getAppointmentById(id)
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+            LocalDate date = request.getDate() != null ? LocalDate.parse(request.getDate()) : null;
+            List<BulkStatusResult> results = appointmentService.bulkUpdateStatus(
+                request.getAction(), request.getIds(), request.getStatus(), request.getDoctorId(), date);
+            long updated = results.stream().filter(r -> BulkStatusResult.UPDATED.equals(r.getOutcome())).count();
 
-            appointment.setStatus(Appointment.AppointmentStatus.reschedule_requested);
-            appointmentService.updateAppointment(appointment);
+            Map<String, Object> data = new HashMap<>();
+            data.put("results", results);
+            data.put("updated", updated);
+            data.put("skipped", results.size() - updated);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Solicitud de reprogramación enviada");
+            response.put("data", data);
+            response.put("message", updated + " de " + results.size() + " citas actualizadas");
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -229,24 +376,173 @@ public class AppointmentController {
         }
     }
 
-    @GetMapping("/reschedule-requests")
+    // Exportación para informes en CSV o NDJSON. from y to acotan la fecha de la cita, status admite
+    // varios estados separados por comas y con gzip=true se descarga comprimido (.csv.gz). Las filas se
+    // escriben según llegan del cursor desde el hilo de la petición, como /api/patients/import: una
+    // exportación grande dura más que el timeout de las peticiones asíncronas.
+    @GetMapping("/export")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getRescheduleRequests() {
+    public ResponseEntity<Map<String, Object>> exportAppointments(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat;
+        LocalDate fromDate;
+        LocalDate toDate;
+        List<Appointment.AppointmentStatus> statuses = new ArrayList<>();
+        try {
+            exportFormat = ExportService.Format.of(format);
+            fromDate = from != null ? LocalDate.parse(from) : null;
+            toDate = to != null ? LocalDate.parse(to) : null;
+            if (status != null) {
+                for (String name : status.split(",")) {
+                    statuses.add(appointmentStatus(name));
+                }
+            }
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Parámetros de exportación no válidos: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        response.setContentType(gzip ? "application/gzip" : exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(exportFormat.fileName("appointments", gzip)).build().toString());
+        try (OutputStream out = gzip ? ExportService.gzip(response.getOutputStream()) : response.getOutputStream()) {
+            exportService.exportAppointments(fromDate, toDate, statuses, exportFormat, out);
+        }
+        return null;
+    }
+
+    @PutMapping("/{id}/request-reschedule")
+    public ResponseEntity<Map<String, Object>> requestReschedule(@PathVariable Long id,
+            @RequestParam(required = false) Long version) {
         try {
-            List<Appointment> appointments = appointmentService.getAppointmentsByStatus(Appointment.AppointmentStatus.reschedule_requested);
-            
-            List<AppointmentResponse> appointmentResponses = appointments.stream()
-                .map(AppointmentResponse::new)
-                .collect(Collectors.toList());
+            appointmentService.transitionStatus(id, Appointment.AppointmentStatus.reschedule_requested, version);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", appointmentResponses);
+            response.put("message", "Solicitud de reprogramación enviada");
 
             return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @GetMapping("/reschedule-requests")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRescheduleRequests(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        try {
+            String etag = collectionVersions.etag(CollectionVersions.APPOINTMENTS, "reschedule", cursor, limit);
+            if (collectionVersions.checkNotModified(request, CollectionVersions.APPOINTMENTS, etag)) {
+                return null;
+            }
+            int pageSize = pageSize(limit);
+            List<Appointment> appointments = appointmentService.getAppointmentsPageByStatus(
+                Appointment.AppointmentStatus.reschedule_requested, AppointmentCursor.decode(cursor), pageSize);
+
+            return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag)
+                .body(pageResponse(appointments, pageSize, null));
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", "Error al obtener solicitudes de reprogramación: " + e.getMessage());
             return ResponseEntity.badRequest().body(errorResponse);
-        }
\ No newline at end of file
+        }
+    }
+
+    @GetMapping(value = "/reschedule-requests", produces = NDJSON)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamRescheduleRequests() {
+        return ndjson(action -> appointmentService.streamAppointmentsByStatus(Appointment.AppointmentStatus.reschedule_requested, action));
+    }
+
+    private static Appointment.AppointmentStatus appointmentStatus(String name) {
+        try {
+            return Appointment.AppointmentStatus.valueOf(name.trim().toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Estado no válido: " + name.trim());
+        }
+    }
+
+    // El principal lo pone JwtAuthenticationFilter y es la entidad User
+    private static User currentUser() {
+        return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // Arma la respuesta de una página; rows trae hasta pageSize + 1 filas. En la primera página va
+    // también el token de sincronización, tomado antes de leer, para seguir después con ?since=
+    private static Map<String, Object> pageResponse(List<Appointment> rows, int pageSize, SyncToken syncToken) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Appointment> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<AppointmentResponse> appointmentResponses = page.stream()
+            .map(AppointmentResponse::new)
+            .collect(Collectors.toList());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", appointmentResponses);
+        response.put("nextCursor", hasMore ? AppointmentCursor.of(page.get(page.size() - 1)).encode() : null);
+        if (syncToken != null) {
+            response.put("syncToken", syncToken.encode());
+        }
+        return response;
+    }
+
+    // Respuesta de ?since=: cambios y borrados desde el token. Un token anterior a la retención de
+    // borrados responde 410 y el cliente recarga el listado completo.
+    private ResponseEntity<Map<String, Object>> changesResponse(String since, Long doctorId, Long patientId, int limit) {
+        SyncToken token = SyncToken.decode(since);
+        if (syncService.isExpired(token)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("resync", true);
+            errorResponse.put("message", "El token de sincronización expiró, recarga el listado completo");
+            return ResponseEntity.status(HttpStatus.GONE).body(errorResponse);
+        }
+
+        SyncBatch<Appointment> batch = syncService.getAppointmentChanges(token, doctorId, patientId, pageSize(limit));
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", batch.getChanged().stream().map(AppointmentResponse::new).collect(Collectors.toList()));
+        response.put("deleted", batch.getDeleted());
+        response.put("syncToken", batch.getSyncToken());
+        response.put("hasMore", batch.isHasMore());
+        return ResponseEntity.ok(response);
+    }
+
+    // Escribe una cita por línea a medida que llegan del cursor JDBC
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<Appointment>> source) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            source.accept(appointment -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(new AppointmentResponse(appointment)));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(body);
+    }
+}
\ No newline at end of file
@@ -5,22 +5,41 @@ import com.aineurysm.dto.LoginRequest;
 import com.aineurysm.dto.RegisterRequest;
 import com.aineurysm.dto.UserResponse;
 import com.aineurysm.service.AuthService;
+import com.aineurysm.service.IdempotencyStore;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = {"http://localhost:8080", "http://localhost:5173", "http://localhost:3000", "http://localhost:4173", "https://01343946-e828-42d0-b28e-4199593fb280.lovableproject.com"})
 public class AuthController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    // Con Idempotency-Key, un reintento del mismo registro recibe la respuesta original sin volver a
+    // calcular el hash de la contraseña ni responder "ya existe una cuenta". El token no se guarda con
+    // ella: el reintento (que repite email y contraseña) recibe uno nuevo
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
+    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute("register", request.getEmail().toLowerCase(), idempotencyKey, request,
+            () -> register(request), "token", stored -> authService.issueToken(stored.path("user").path("email").asText()));
+    }
+
+    private ResponseEntity<?> register(RegisterRequest request) {
         try {
             AuthResponse response = authService.register(request);
             return ResponseEntity.ok(response);
@@ -32,16 +51,10 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
         try {
-            System.out.println("=== LOGIN REQUEST ===");
-            System.out.println("Email: " + request.getEmail());
-            System.out.println("Password: " + request.getPassword());
-            
             AuthResponse response = authService.login(request);
-            System.out.println("Login successful for: " + request.getEmail());
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
-            System.out.println("Login failed: " + e.getMessage());
-            e.printStackTrace();
+            logger.info("Login fallido {}", kv("error", e.getMessage()));
             return ResponseEntity.badRequest().body(new ErrorResponse(false, e.getMessage()));
         }
     }
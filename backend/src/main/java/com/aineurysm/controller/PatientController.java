@@ -1,15 +1,42 @@
 package com.aineurysm.controller;
 
+import com.aineurysm.dto.PatientImportEvent;
 import com.aineurysm.dto.PatientResponse;
+import com.aineurysm.dto.SyncBatch;
+import com.aineurysm.dto.SyncToken;
 import com.aineurysm.model.Patient;
+import com.aineurysm.service.CollectionVersions;
+import com.aineurysm.service.ExportService;
+import com.aineurysm.service.PatientImportService;
 import com.aineurysm.service.PatientService;
+import com.aineurysm.service.SyncService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -21,15 +48,50 @@ public class PatientController {
     @Autowired
     private PatientService patientService;
 
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private PatientImportService patientImportService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // El navegador guarda la respuesta pero la revalida siempre con If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    // Con ?since=<token> devuelve solo los pacientes creados, modificados o borrados desde ese token
     @GetMapping
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getAllPatients(@RequestParam(required = false) String search) {
+    public ResponseEntity<Map<String, Object>> getAllPatients(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            WebRequest request) {
         try {
-            List<Patient> patients;
+            int pageNumber = Math.max(page, 0);
+            int pageSize = Math.max(1, Math.min(size, 200));
+            if (since != null) {
+                return changesResponse(SyncToken.decode(since), pageSize);
+            }
+            String etag = collectionVersions.etag(CollectionVersions.PATIENTS, "list", search, pageNumber, pageSize);
+            if (collectionVersions.checkNotModified(request, CollectionVersions.PATIENTS, etag)) {
+                return null;
+            }
+            // Token tomado antes de leer: lo que cambie mientras el cliente pagina llega con ?since=
+            SyncToken syncToken = pageNumber == 0 ? syncService.currentToken() : null;
+            Slice<Patient> patients;
             if (search != null && !search.trim().isEmpty()) {
-                patients = patientService.searchPatients(search);
+                patients = patientService.searchPatients(search, pageNumber, pageSize);
             } else {
-                patients = patientService.getAllPatients();
+                patients = patientService.getPatientsPage(pageNumber, pageSize);
             }
 
             List<PatientResponse> patientResponses = patients.stream()
@@ -39,9 +101,18 @@ public class PatientController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", patientResponses);
-            response.put("total", patientResponses.size());
+            // Las búsquedas no cuentan coincidencias: solo el listado completo lleva total
+            if (patients instanceof Page<Patient> counted) {
+                response.put("total", counted.getTotalElements());
+            }
+            response.put("hasNext", patients.hasNext());
+            response.put("page", pageNumber);
+            response.put("size", pageSize);
+            if (syncToken != null) {
+                response.put("syncToken", syncToken.encode());
+            }
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag).body(response);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -72,19 +143,17 @@ public class PatientController {
 
     @GetMapping("/stats")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getPatientStats() {
+    public ResponseEntity<Map<String, Object>> getPatientStats(WebRequest request) {
         try {
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalPatients", patientService.getAllPatients().size());
-            stats.put("activePatients", patientService.countActivePatients());
-            stats.put("pendingAnalyses", patientService.countPendingAnalyses());
-            stats.put("upcomingAppointments", patientService.countUpcomingAppointments());
-
+            String etag = collectionVersions.etag(CollectionVersions.PATIENTS, "stats");
+            if (collectionVersions.checkNotModified(request, CollectionVersions.PATIENTS, etag)) {
+                return null;
+            }
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", stats);
+            response.put("data", patientService.getPatientStats());
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag).body(response);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -112,4 +181,99 @@ public class PatientController {
             return ResponseEntity.badRequest().body(errorResponse);
         }
     }
+
+    // Alta masiva: CSV con cabecera (name, email, phone y opcionalmente status) o NDJSON, según el
+    // Content-Type. La respuesta es NDJSON y se envía mientras se lee el fichero: una línea por fila
+    // rechazada, una de progreso por lote escrito y el resumen al final. Se escribe desde el hilo de
+    // la petición y no con StreamingResponseBody: una importación grande dura más que el timeout
+    // de las peticiones asíncronas.
+    @PostMapping(value = "/import", consumes = {PatientImportService.CSV, PatientImportService.NDJSON})
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importPatients(InputStream body, @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletResponse response) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(PatientImportService.CSV));
+        response.setContentType(PatientImportService.NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        PatientImportEvent summary = patientImportService.importPatients(body, csv, event -> {
+            try {
+                writeLine(writer, event);
+                if (PatientImportEvent.PROGRESS.equals(event.getType())) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writeLine(writer, summary);
+        writer.flush();
+    }
+
+    // Exportación para informes en CSV (la misma cabecera que acepta /import) o NDJSON. from y to
+    // acotan la fecha de alta, status es ACTIVE o INACTIVE y con gzip=true se descarga comprimido
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> exportPatients(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat;
+        LocalDate fromDate;
+        LocalDate toDate;
+        Patient.PatientStatus patientStatus;
+        try {
+            exportFormat = ExportService.Format.of(format);
+            fromDate = from != null ? LocalDate.parse(from) : null;
+            toDate = to != null ? LocalDate.parse(to) : null;
+            patientStatus = status != null ? patientStatus(status) : null;
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Parámetros de exportación no válidos: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        response.setContentType(gzip ? "application/gzip" : exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(exportFormat.fileName("patients", gzip)).build().toString());
+        try (OutputStream out = gzip ? ExportService.gzip(response.getOutputStream()) : response.getOutputStream()) {
+            exportService.exportPatients(fromDate, toDate, patientStatus, exportFormat, out);
+        }
+        return null;
+    }
+
+    private static Patient.PatientStatus patientStatus(String name) {
+        try {
+            return Patient.PatientStatus.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Estado no válido: " + name.trim() + " (ACTIVE o INACTIVE)");
+        }
+    }
+
+    private void writeLine(Writer writer, PatientImportEvent event) throws IOException {
+        writer.write(objectMapper.writeValueAsString(event));
+        writer.write('\n');
+    }
+
+    private ResponseEntity<Map<String, Object>> changesResponse(SyncToken since, int size) {
+        if (syncService.isExpired(since)) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("resync", true);
+            errorResponse.put("message", "El token de sincronización expiró, recarga el listado completo");
+            return ResponseEntity.status(HttpStatus.GONE).body(errorResponse);
+        }
+
+        SyncBatch<Patient> batch = syncService.getPatientChanges(since, size);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", batch.getChanged().stream().map(PatientResponse::new).collect(Collectors.toList()));
+        response.put("deleted", batch.getDeleted());
+        response.put("syncToken", batch.getSyncToken());
+        response.put("hasMore", batch.isHasMore());
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
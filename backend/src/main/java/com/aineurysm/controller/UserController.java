@@ -2,11 +2,14 @@ package com.aineurysm.controller;
 
 import com.aineurysm.dto.UserResponse;
 import com.aineurysm.model.User;
+import com.aineurysm.service.CollectionVersions;
 import com.aineurysm.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -18,6 +21,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CollectionVersions collectionVersions;
+
     // Obtener todos los usuarios (solo ADMIN)
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -73,10 +79,15 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
 
-    // Obtener doctores aprobados (disponible para todos los usuarios autenticados)
+    // Obtener doctores aprobados (disponible para todos los usuarios autenticados).
+    // Con If-None-Match de la versión actual responde 304 sin consultar la base de datos
     @GetMapping("/doctors")
-    public ResponseEntity<List<UserResponse>> getApprovedDoctors() {
+    public ResponseEntity<List<UserResponse>> getApprovedDoctors(WebRequest request) {
+        String etag = collectionVersions.etag(CollectionVersions.USERS, "doctors");
+        if (collectionVersions.checkNotModified(request, CollectionVersions.USERS, etag)) {
+            return null;
+        }
         List<UserResponse> doctors = userService.getApprovedDoctors();
-        return ResponseEntity.ok(doctors);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).eTag(etag).body(doctors);
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.aineurysm.dto;
+
+import com.aineurysm.model.AnalysisJob;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class AnalysisJobResponse {
+    private Long id;
+    private Long patientId;
+    private String status;
+    private String fileName;
+    private Integer attempts;
+    private String result;
+    private Integer confidence;
+    private String findings;
+    private String lastError;
+    private String createdAt;
+    private String finishedAt;
+
+    public AnalysisJobResponse(AnalysisJob job) {
+        this.id = job.getId();
+        this.patientId = job.getPatientId();
+        this.status = job.getStatus().name().toLowerCase();
+        this.fileName = job.getFileName();
+        this.attempts = job.getAttempts();
+        this.result = job.getResult() != null ? job.getResult().name().toLowerCase() : null;
+        this.confidence = job.getConfidence();
+        this.findings = job.getFindings();
+        this.lastError = job.getLastError();
+        this.createdAt = job.getCreatedAt() != null ? job.getCreatedAt().toString() : null;
+        this.finishedAt = job.getFinishedAt() != null ? job.getFinishedAt().toString() : null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aineurysm.dto;
+
+import com.aineurysm.model.Patient;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lo que devuelve un Analyzer: NORMAL o ABNORMAL, confianza de 0 a 100 y hallazgos en texto
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisOutcome {
+    private Patient.AnalysisResult result;
+    private Integer confidence;
+    private String findings;
+}
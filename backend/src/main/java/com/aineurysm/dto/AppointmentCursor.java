@@ -0,0 +1,47 @@
+package com.aineurysm.dto;
+
+import com.aineurysm.model.Appointment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+// Cursor opaco para paginar citas por (fecha, hora, id)
+public class AppointmentCursor {
+    private final LocalDate date;
+    private final LocalTime time;
+    private final Long id;
+
+    public AppointmentCursor(LocalDate date, LocalTime time, Long id) {
+        this.date = date;
+        this.time = time;
+        this.id = id;
+    }
+
+    public static AppointmentCursor of(Appointment appointment) {
+        return new AppointmentCursor(appointment.getDate(), appointment.getTime(), appointment.getId());
+    }
+
+    public static AppointmentCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new AppointmentCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor inválido");
+        }
+    }
+
+    public String encode() {
+        String raw = date + "|" + time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDate getDate() { return date; }
+    public LocalTime getTime() { return time; }
+    public Long getId() { return id; }
+}
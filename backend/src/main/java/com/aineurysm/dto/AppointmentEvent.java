@@ -0,0 +1,26 @@
+package com.aineurysm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cambio de una cita enviado por /api/appointments/events. En "created" viaja la cita completa;
+// en los cambios de estado solo lo necesario para actualizar la fila que el cliente ya tiene.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AppointmentEvent {
+    public static final String CREATED = "created";
+
+    private String type;
+    private Long id;
+    private String status;
+    private Long version;
+    private Long doctorId;
+    private Long patientId;
+    private String date;
+    private String time;
+    private AppointmentResponse appointment;
+}
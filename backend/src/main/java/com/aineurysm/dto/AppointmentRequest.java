@@ -8,6 +8,8 @@ import lombok.NoArgsConstructor;
 public class AppointmentRequest {
     private String date;
     private String time;
+    private Long doctorId;
+    // Solo para clientes anteriores que no envían doctorId
     private String doctorName;
     private String doctorSpecialty;
     private String patientName;
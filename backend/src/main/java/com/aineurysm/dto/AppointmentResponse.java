@@ -12,22 +12,26 @@ public class AppointmentResponse {
     private Long id;
     private String date;
     private String time;
+    private Long doctorId;
     private String doctor;
     private String specialty;
     private String patientName;
     private String patientEmail;
     private String status;
     private String createdAt;
+    private Long version;
 
     public AppointmentResponse(Appointment appointment) {
         this.id = appointment.getId();
         this.date = appointment.getDate().toString();
         this.time = appointment.getTime().toString();
+        this.doctorId = appointment.getDoctorId();
         this.doctor = appointment.getDoctorName();
         this.specialty = appointment.getDoctorSpecialty();
         this.patientName = appointment.getPatientName();
         this.patientEmail = appointment.getPatientEmail();
         this.status = appointment.getStatus().name().toLowerCase();
         this.createdAt = appointment.getCreatedAt().toString();
+        this.version = appointment.getVersion();
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.aineurysm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableSlotResponse {
+    private String date;
+    private String time;
+    private Long doctorId;
+    private String doctor;
+    private String specialty;
+}
@@ -0,0 +1,17 @@
+package com.aineurysm.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Cambio de estado masivo: por lista de ids o por filtro (estado actual, médico, fecha)
+@Data
+@NoArgsConstructor
+public class BulkStatusRequest {
+    private String action;
+    private List<Long> ids;
+    private String status;
+    private Long doctorId;
+    private String date;
+}
@@ -0,0 +1,18 @@
+package com.aineurysm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusResult {
+    public static final String UPDATED = "updated";
+    public static final String NOT_FOUND = "not_found";
+    public static final String INVALID_STATE = "invalid_state";
+
+    private Long id;
+    private String outcome;
+    private String status;
+}
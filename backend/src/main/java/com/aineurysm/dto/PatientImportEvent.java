@@ -0,0 +1,37 @@
+package com.aineurysm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Línea de la respuesta NDJSON de /api/patients/import: "error" por cada fila rechazada,
+// "progress" tras cada lote escrito y "summary" al terminar. Los duplicados (email que ya
+// existe o que se repite en el fichero) solo se cuentan.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PatientImportEvent {
+    public static final String ERROR = "error";
+    public static final String PROGRESS = "progress";
+    public static final String SUMMARY = "summary";
+
+    private String type;
+    private Integer line;
+    private String message;
+    private Long processed;
+    private Long inserted;
+    private Long duplicates;
+    private Long invalid;
+    private Boolean aborted;
+    private Long elapsedMs;
+
+    public static PatientImportEvent error(Integer line, String message) {
+        PatientImportEvent event = new PatientImportEvent();
+        event.setType(ERROR);
+        event.setLine(line);
+        event.setMessage(message);
+        return event;
+    }
+}
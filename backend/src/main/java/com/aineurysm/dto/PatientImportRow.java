@@ -0,0 +1,16 @@
+package com.aineurysm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Una fila de /api/patients/import, venga de una línea NDJSON o de un registro CSV
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientImportRow {
+    private String name;
+    private String email;
+    private String phone;
+    private String status;
+}
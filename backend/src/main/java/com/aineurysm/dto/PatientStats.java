@@ -0,0 +1,49 @@
+package com.aineurysm.dto;
+
+import com.aineurysm.model.Patient;
+
+// Contadores del dashboard de pacientes; inmutable para poder compartirlo entre hilos
+public class PatientStats {
+    private final long totalPatients;
+    private final long activePatients;
+    private final long pendingAnalyses;
+    private final long upcomingAppointments;
+
+    public PatientStats(long totalPatients, long activePatients, long pendingAnalyses, long upcomingAppointments) {
+        this.totalPatients = totalPatients;
+        this.activePatients = activePatients;
+        this.pendingAnalyses = pendingAnalyses;
+        this.upcomingAppointments = upcomingAppointments;
+    }
+
+    // Aplica el cambio de un paciente: before es null al crear, after es null al eliminar
+    public PatientStats apply(Patient before, Patient after) {
+        return new PatientStats(
+            totalPatients + count(after != null) - count(before != null),
+            activePatients + count(isActive(after)) - count(isActive(before)),
+            pendingAnalyses + count(isPendingAnalysis(after)) - count(isPendingAnalysis(before)),
+            upcomingAppointments + count(hasNextAppointment(after)) - count(hasNextAppointment(before))
+        );
+    }
+
+    private static long count(boolean condition) {
+        return condition ? 1 : 0;
+    }
+
+    private static boolean isActive(Patient patient) {
+        return patient != null && patient.getStatus() == Patient.PatientStatus.ACTIVE;
+    }
+
+    private static boolean isPendingAnalysis(Patient patient) {
+        return patient != null && patient.getLastAnalysisResult() == Patient.AnalysisResult.PENDING;
+    }
+
+    private static boolean hasNextAppointment(Patient patient) {
+        return patient != null && patient.getNextAppointment() != null;
+    }
+
+    public long getTotalPatients() { return totalPatients; }
+    public long getActivePatients() { return activePatients; }
+    public long getPendingAnalyses() { return pendingAnalyses; }
+    public long getUpcomingAppointments() { return upcomingAppointments; }
+}
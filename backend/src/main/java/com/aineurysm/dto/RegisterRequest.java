@@ -21,6 +21,8 @@ public class RegisterRequest {
     private String confirmPassword;
     
     private String role = "patient";
+    
+    private String specialty;
 
     // Constructores
     public RegisterRequest() {}
@@ -48,4 +50,7 @@ public class RegisterRequest {
 
     public String getRole() { return role; }
     public void setRole(String role) { this.role = role; }
+
+    public String getSpecialty() { return specialty; }
+    public void setSpecialty(String specialty) { this.specialty = specialty; }
 }
\ No newline at end of file
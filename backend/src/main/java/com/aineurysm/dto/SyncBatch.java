@@ -0,0 +1,17 @@
+package com.aineurysm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Un lote de sincronización incremental: filas creadas o modificadas, ids borrados y el token
+// para pedir el siguiente lote. hasMore indica que quedan cambios hasta el horizonte actual.
+@Data
+@AllArgsConstructor
+public class SyncBatch<T> {
+    private List<T> changed;
+    private List<Long> deleted;
+    private String syncToken;
+    private boolean hasMore;
+}
@@ -0,0 +1,42 @@
+package com.aineurysm.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Token opaco de sincronización incremental: posición (updatedAt, id) hasta la que el cliente
+// ya recibió cambios. Con id = Long.MAX_VALUE cubre todas las filas de ese instante.
+public class SyncToken {
+    private final LocalDateTime updatedAt;
+    private final Long id;
+
+    public SyncToken(LocalDateTime updatedAt, Long id) {
+        this.updatedAt = updatedAt;
+        this.id = id;
+    }
+
+    public static SyncToken at(LocalDateTime instant) {
+        return new SyncToken(instant, Long.MAX_VALUE);
+    }
+
+    public static SyncToken decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new SyncToken(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Token de sincronización inválido");
+        }
+    }
+
+    public String encode() {
+        String raw = updatedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public Long getId() { return id; }
+}
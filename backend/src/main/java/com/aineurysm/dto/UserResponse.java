@@ -25,8 +25,7 @@ public class UserResponse {
         this.isActive = user.getIsActive();
         this.createdAt = user.getCreatedAt() != null ? user.getCreatedAt().toString() : null;
         this.phone = user.getPhone();
-        // Specialty se puede agregar más tarde cuando exista el campo en User
-        this.specialty = null;
+        this.specialty = user.getSpecialty();
     }
 
     // Getters y Setters
@@ -0,0 +1,50 @@
+package com.aineurysm.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Registra cuántas sentencias SQL y cargas de entidades hizo Hibernate en cada petición,
+// etiquetado por método y patrón de URI (mismas etiquetas que http.server.requests)
+@Component
+public class RequestQueryMetricsFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStats.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryStats.Counts counts = RequestQueryStats.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+            summary("hibernate.request.statements", "Sentencias SQL por petición", request.getMethod(), uri)
+                .record(counts.getStatements());
+            summary("hibernate.request.entity.loads", "Entidades cargadas por petición", request.getMethod(), uri)
+                .record(counts.getEntityLoads());
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String method, String uri) {
+        return DistributionSummary.builder(name)
+            .description(description)
+            .tag("method", method)
+            .tag("uri", uri)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+}
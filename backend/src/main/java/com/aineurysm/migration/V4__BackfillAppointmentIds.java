@@ -0,0 +1,66 @@
+package com.aineurysm.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Rellena appointments.doctor_id y patient_id (columnas de V3) por rangos de id.
+// Fuera de una transacción: cada lote es un UPDATE con su propio commit, así que solo
+// bloquea las filas del lote y las instancias anteriores siguen atendiendo mientras corre.
+// Flyway la recibe como bean (Spring Boot registra los JavaMigration del contexto).
+@Component
+public class V4__BackfillAppointmentIds extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V4__BackfillAppointmentIds.class);
+
+    // Médico solo si el nombre es de un único médico; los nombres repetidos quedan en NULL
+    private static final String BACKFILL_BATCH =
+        "UPDATE appointments a SET "
+        + "doctor_id = COALESCE(a.doctor_id, (SELECT CASE WHEN count(*) = 1 THEN min(u.id) END "
+        + "FROM users u WHERE u.role = 'doctor' AND u.name = a.doctor_name)), "
+        + "patient_id = COALESCE(a.patient_id, (SELECT u.id FROM users u WHERE u.email = a.patient_email)) "
+        + "WHERE a.id >= ? AND a.id < ? AND (a.doctor_id IS NULL OR a.patient_id IS NULL)";
+
+    @Value("${app.migrations.backfill-batch-size:10000}")
+    private int batchSize;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+
+        Long minId = jdbc.queryForObject("SELECT min(id) FROM appointments", Long.class);
+        Long maxId = jdbc.queryForObject("SELECT max(id) FROM appointments", Long.class);
+        if (minId != null) {
+            long updated = 0;
+            long started = System.currentTimeMillis();
+            for (long from = minId; from <= maxId; from += batchSize) {
+                updated += jdbc.update(BACKFILL_BATCH, from, from + batchSize);
+                if ((from - minId) / batchSize % 100 == 99) {
+                    logger.info("Relleno de ids de citas {} {}", kv("upTo", from + batchSize), kv("maxId", maxId));
+                }
+            }
+
+            Long unresolved = jdbc.queryForObject(
+                "SELECT count(*) FROM appointments WHERE doctor_id IS NULL OR (patient_id IS NULL AND patient_email IS NOT NULL)",
+                Long.class);
+            logger.info("Relleno de ids de citas terminado {} {} {}", kv("updated", updated),
+                kv("unresolved", unresolved), kv("ms", System.currentTimeMillis() - started));
+        }
+
+        // Con los datos rellenos, validar las claves solo toma SHARE UPDATE EXCLUSIVE: no bloquea escrituras
+        jdbc.execute("ALTER TABLE appointments VALIDATE CONSTRAINT fk_appointments_doctor");
+        jdbc.execute("ALTER TABLE appointments VALIDATE CONSTRAINT fk_appointments_patient");
+    }
+}
@@ -0,0 +1,87 @@
+package com.aineurysm.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Petición de análisis de IA en la cola persistente (V9). Los cambios de estado los hace
+// AnalysisQueue con UPDATE condicionales; la entidad solo se guarda al encolar.
+@Entity
+@Table(name = "analysis_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    // Relativa a app.upload-dir
+    @Column(name = "input_path", nullable = false)
+    private String inputPath;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "run_after", nullable = false)
+    private LocalDateTime runAfter;
+
+    @Column(name = "locked_by", length = 100)
+    private String lockedBy;
+
+    @Column(name = "previous_result", length = 20)
+    @Enumerated(EnumType.STRING)
+    private Patient.AnalysisResult previousResult;
+
+    @Column(length = 20)
+    @Enumerated(EnumType.STRING)
+    private Patient.AnalysisResult result;
+
+    private Integer confidence;
+
+    @Column(columnDefinition = "TEXT")
+    private String findings;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, DEAD
+    }
+}
@@ -8,6 +8,7 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
 @Table(name = "appointments")
@@ -25,6 +26,14 @@ public class Appointment {
     @Column(name = "appointment_time", nullable = false)
     private LocalTime time;
 
+    // Médico y paciente (users.id); las búsquedas y el índice de disponibilidad usan estos ids
+    @Column(name = "doctor_id")
+    private Long doctorId;
+
+    @Column(name = "patient_id")
+    private Long patientId;
+
+    // Copia de los datos al momento de la reserva, solo para mostrar
     @Column(name = "doctor_name", nullable = false)
     private String doctorName;
 
@@ -47,6 +56,11 @@ public class Appointment {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bloqueo optimista: lo incrementan tanto save() como las transiciones de estado por UPDATE
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -59,6 +73,39 @@ public class Appointment {
     }
 
     public enum AppointmentStatus {
-        pending, approved, rejected, cancelled, completed, reschedule_requested
+        pending, approved, rejected, cancelled, completed, reschedule_requested;
+
+        // Estados que mantienen ocupado el horario del médico
+        public boolean occupiesSlot() {
+            return this != rejected && this != cancelled;
+        }
+
+        public static List<AppointmentStatus> activeStatuses() {
+            return ACTIVE_STATUSES;
+        }
+
+        // Máquina de estados: estados desde los que la cita puede pasar a este estado
+        public List<AppointmentStatus> allowedSources() {
+            switch (this) {
+                case approved:
+                case rejected:
+                    return List.of(pending, reschedule_requested);
+                case cancelled:
+                    return List.of(pending, approved, reschedule_requested);
+                case reschedule_requested:
+                    return List.of(pending, approved);
+                case completed:
+                    return List.of(approved);
+                default:
+                    return List.of();
+            }
+        }
+
+        public boolean canTransitionTo(AppointmentStatus target) {
+            return target.allowedSources().contains(this);
+        }
+
+        private static final List<AppointmentStatus> ACTIVE_STATUSES =
+            List.of(pending, approved, completed, reschedule_requested);
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.aineurysm.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+// Versión compartida de una colección para los ETag (V10). Solo se usa con
+// app.etags.store = database; en memoria la lleva CollectionVersions.
+@Entity
+@Table(name = "collection_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CollectionVersion {
+
+    @Id
+    @Column(length = 50)
+    private String collection;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -5,7 +5,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.text.Normalizer;
 import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Entity
 @Table(name = "patients")
@@ -49,15 +52,35 @@ public class Patient {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Nombre y email normalizados (minúsculas, sin acentos) para la búsqueda indexada
+    @Column(name = "search_text", length = 600)
+    private String searchText;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        searchText = buildSearchText();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        searchText = buildSearchText();
+    }
+
+    public String buildSearchText() {
+        return normalizeForSearch(name) + " " + normalizeForSearch(email);
+    }
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    public static String normalizeForSearch(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
     }
 
     public enum PatientStatus {
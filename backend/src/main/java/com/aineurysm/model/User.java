@@ -45,6 +45,8 @@ public class User implements UserDetails {
     
     private String gender;
     
+    private String specialty;
+    
     @Column(name = "is_active")
     private Boolean isActive = true;
     
@@ -124,6 +126,9 @@ public class User implements UserDetails {
     public String getGender() { return gender; }
     public void setGender(String gender) { this.gender = gender; }
 
+    public String getSpecialty() { return specialty; }
+    public void setSpecialty(String specialty) { this.specialty = specialty; }
+
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
@@ -0,0 +1,66 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.model.Patient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+
+    // Hasta ?2 trabajos que se pueden reclamar ya, bloqueados hasta el final de la transacción.
+    // SKIP LOCKED: las filas que otra instancia está reclamando se saltan en lugar de esperarlas.
+    @Query(value = "SELECT * FROM analysis_jobs WHERE status IN ('QUEUED', 'RUNNING') AND run_after <= ?1 " +
+           "ORDER BY run_after, id LIMIT ?2 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<AnalysisJob> findClaimable(LocalDateTime now, int limit);
+
+    // Las transiciones desde RUNNING solo valen para quien la reclamó: ?2 es el attempts de su reclamación
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = 'DONE', j.result = ?3, j.confidence = ?4, j.findings = ?5, " +
+           "j.lastError = NULL, j.lockedBy = NULL, j.finishedAt = ?6, j.updatedAt = ?6 " +
+           "WHERE j.id = ?1 AND j.status = 'RUNNING' AND j.attempts = ?2")
+    int complete(Long id, int attempts, Patient.AnalysisResult result, Integer confidence, String findings, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = 'QUEUED', j.lastError = ?3, j.lockedBy = NULL, j.runAfter = ?4, j.updatedAt = ?5 " +
+           "WHERE j.id = ?1 AND j.status = 'RUNNING' AND j.attempts = ?2")
+    int retryLater(Long id, int attempts, String error, LocalDateTime runAfter, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = 'DEAD', j.lastError = ?3, j.lockedBy = NULL, j.finishedAt = ?4, j.updatedAt = ?4 " +
+           "WHERE j.id = ?1 AND j.status = 'RUNNING' AND j.attempts = ?2")
+    int deadLetter(Long id, int attempts, String error, LocalDateTime now);
+
+    // Devuelve a la cola un trabajo interrumpido por el apagado de la instancia, sin gastar un intento
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = 'QUEUED', j.attempts = j.attempts - 1, j.lockedBy = NULL, " +
+           "j.runAfter = ?3, j.updatedAt = ?3 WHERE j.id = ?1 AND j.status = 'RUNNING' AND j.attempts = ?2")
+    int release(Long id, int attempts, LocalDateTime now);
+
+    // clearAutomatically: quien lo llama vuelve a leer el trabajo ya en QUEUED, no el DEAD en caché
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AnalysisJob j SET j.status = 'QUEUED', j.attempts = 0, j.lastError = NULL, j.finishedAt = NULL, " +
+           "j.runAfter = ?2, j.updatedAt = ?2 WHERE j.id = ?1 AND j.status = 'DEAD'")
+    int requeueDead(Long id, LocalDateTime now);
+
+    long countByStatus(AnalysisJob.Status status);
+
+    List<AnalysisJob> findByPatientIdOrderByIdDesc(Long patientId, Pageable pageable);
+
+    List<AnalysisJob> findByStatusOrderByIdDesc(AnalysisJob.Status status, Pageable pageable);
+
+    List<AnalysisJob> findAllByOrderByIdDesc(Pageable pageable);
+}
@@ -1,25 +1,110 @@
 package com.aineurysm.repository;
 
 import com.aineurysm.model.Appointment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
-    List<Appointment> findByPatientEmail(String patientEmail);
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentRepositoryCustom {
+    List<Appointment> findByPatientId(Long patientId);
     
-    List<Appointment> findByDoctorName(String doctorName);
+    List<Appointment> findByDoctorId(Long doctorId);
     
     List<Appointment> findByStatus(Appointment.AppointmentStatus status);
     
-    @Query("SELECT a FROM Appointment a WHERE a.date = ?1 AND a.time = ?2 AND a.doctorName = ?3")
-    List<Appointment> findByDateAndTimeAndDoctor(LocalDate date, LocalTime time, String doctorName);
+    @Query("SELECT a FROM Appointment a WHERE a.date = ?1 AND a.time = ?2 AND a.doctorId = ?3")
+    List<Appointment> findByDateAndTimeAndDoctor(LocalDate date, LocalTime time, Long doctorId);
+    
+    @Query("SELECT a.time FROM Appointment a WHERE a.doctorId = ?1 AND a.date = ?2 AND a.status IN ?3")
+    List<LocalTime> findBookedTimes(Long doctorId, LocalDate date, Collection<Appointment.AppointmentStatus> statuses);
+    
+    boolean existsByDoctorIdAndDateAndTimeAndStatusIn(Long doctorId, LocalDate date, LocalTime time,
+                                                      Collection<Appointment.AppointmentStatus> statuses);
+    
+    @Query("SELECT a.doctorId, a.date, a.time FROM Appointment a WHERE a.date >= ?1 AND a.status IN ?2 AND a.doctorId IS NOT NULL")
+    List<Object[]> findBookedSlotsFrom(LocalDate from, Collection<Appointment.AppointmentStatus> statuses);
+    
+    @Query("SELECT a.doctorId, a.date, a.time FROM Appointment a WHERE a.doctorId IN ?1 AND a.date BETWEEN ?2 AND ?3 AND a.status IN ?4")
+    List<Object[]> findBookedSlotsBetween(Collection<Long> doctorIds, LocalDate from, LocalDate to, Collection<Appointment.AppointmentStatus> statuses);
+    
+    // Transición de estado en una sola sentencia; devuelve 0 si la cita no existe, su estado
+    // no es un origen permitido o (con versión) otra petición la modificó antes
+    @Transactional
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = ?2, a.updatedAt = ?3, a.version = a.version + 1 WHERE a.id = ?1 AND a.status IN ?4")
+    int transitionStatus(Long id, Appointment.AppointmentStatus target, LocalDateTime updatedAt, Collection<Appointment.AppointmentStatus> sources);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = ?2, a.updatedAt = ?3, a.version = a.version + 1 WHERE a.id = ?1 AND a.status IN ?4 AND a.version = ?5")
+    int transitionStatusIfVersion(Long id, Appointment.AppointmentStatus target, LocalDateTime updatedAt, Collection<Appointment.AppointmentStatus> sources, Long version);
+    
+    @Query("SELECT a.status, a.version, a.doctorId, a.date, a.time, a.patientId FROM Appointment a WHERE a.id = ?1")
+    List<Object[]> findStateById(Long id);
+    
+    @Query("SELECT a.id, a.status, a.doctorId, a.date, a.time, a.patientId FROM Appointment a WHERE a.id IN ?1")
+    List<Object[]> findStatusSlotsByIds(Collection<Long> ids);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = ?1 ORDER BY a.date DESC, a.time DESC")
+    List<Appointment> findByPatientIdOrderByDateDesc(Long patientId);
+    
+    // Paginación por cursor sobre (fecha, hora, id). La cota redundante sobre la fecha da
+    // al índice un punto de inicio; sin ella el OR obliga a recorrer las citas anteriores
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = ?1 ORDER BY a.date DESC, a.time DESC, a.id DESC")
+    List<Appointment> findPageByPatientId(Long patientId, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = ?1 AND a.date <= ?2 AND (a.date < ?2 OR (a.date = ?2 AND (a.time < ?3 OR (a.time = ?3 AND a.id < ?4)))) ORDER BY a.date DESC, a.time DESC, a.id DESC")
+    List<Appointment> findPageByPatientIdAfter(Long patientId, LocalDate date, LocalTime time, Long id, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.doctorId = ?1 ORDER BY a.date, a.time, a.id")
+    List<Appointment> findPageByDoctorId(Long doctorId, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.doctorId = ?1 AND a.date >= ?2 AND (a.date > ?2 OR (a.date = ?2 AND (a.time > ?3 OR (a.time = ?3 AND a.id > ?4)))) ORDER BY a.date, a.time, a.id")
+    List<Appointment> findPageByDoctorIdAfter(Long doctorId, LocalDate date, LocalTime time, Long id, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.status = ?1 ORDER BY a.date, a.time, a.id")
+    List<Appointment> findPageByStatus(Appointment.AppointmentStatus status, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.status = ?1 AND a.date >= ?2 AND (a.date > ?2 OR (a.date = ?2 AND (a.time > ?3 OR (a.time = ?3 AND a.id > ?4)))) ORDER BY a.date, a.time, a.id")
+    List<Appointment> findPageByStatusAfter(Appointment.AppointmentStatus status, LocalDate date, LocalTime time, Long id, Pageable pageable);
+    
+    // Sincronización incremental: cambios posteriores a (updatedAt, id) y no más nuevos que el horizonte.
+    // Misma cota redundante que la paginación por cursor para que el índice arranque en updatedAt
+    @Query("SELECT a FROM Appointment a WHERE a.updatedAt >= ?1 AND (a.updatedAt > ?1 OR a.id > ?2) AND a.updatedAt <= ?3 ORDER BY a.updatedAt, a.id")
+    List<Appointment> findChangedSince(LocalDateTime updatedAt, Long id, LocalDateTime horizon, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.doctorId = ?4 AND a.updatedAt >= ?1 AND (a.updatedAt > ?1 OR a.id > ?2) AND a.updatedAt <= ?3 ORDER BY a.updatedAt, a.id")
+    List<Appointment> findChangedSinceByDoctorId(LocalDateTime updatedAt, Long id, LocalDateTime horizon, Long doctorId, Pageable pageable);
+    
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = ?4 AND a.updatedAt >= ?1 AND (a.updatedAt > ?1 OR a.id > ?2) AND a.updatedAt <= ?3 ORDER BY a.updatedAt, a.id")
+    List<Appointment> findChangedSinceByPatientId(LocalDateTime updatedAt, Long id, LocalDateTime horizon, Long patientId, Pageable pageable);
+    
+    // Lectura con cursor JDBC: solo dentro de una transacción y cerrando el Stream
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a FROM Appointment a WHERE a.patientId = ?1 ORDER BY a.date DESC, a.time DESC, a.id DESC")
+    Stream<Appointment> streamByPatientId(Long patientId);
+    
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a FROM Appointment a WHERE a.doctorId = ?1 ORDER BY a.date, a.time, a.id")
+    Stream<Appointment> streamByDoctorId(Long doctorId);
     
-    @Query("SELECT a FROM Appointment a WHERE a.patientEmail = ?1 ORDER BY a.date DESC, a.time DESC")
-    List<Appointment> findByPatientEmailOrderByDateDesc(String patientEmail);
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a FROM Appointment a WHERE a.status = ?1 ORDER BY a.date, a.time, a.id")
+    Stream<Appointment> streamByStatus(Appointment.AppointmentStatus status);
 }
\ No newline at end of file
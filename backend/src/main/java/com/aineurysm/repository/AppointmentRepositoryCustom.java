@@ -0,0 +1,33 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.Appointment;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface AppointmentRepositoryCustom {
+
+    // Filas (id, status, doctorId, date, time, patientId) que cumplen el filtro, hasta limit
+    List<Object[]> findStatusSlotsByFilter(Collection<Appointment.AppointmentStatus> statuses,
+                                           Long doctorId, LocalDate date, int limit);
+
+    // Un UPDATE condicional por id, enviados en lotes JDBC; devuelve las filas afectadas por id (0 o 1)
+    int[] updateStatusIfIn(List<Long> ids, Appointment.AppointmentStatus target,
+                           Collection<Appointment.AppointmentStatus> sources);
+
+    // Bloqueo consultivo de PostgreSQL por médico y horario hasta el final de la transacción en curso.
+    // Dos reservas del mismo horario se esperan aunque lleguen a instancias distintas; otro horario u
+    // otro médico es otra clave y no espera. En otras bases de datos (H2) no hace nada.
+    void lockSlot(Long doctorId, LocalDate date, LocalTime time);
+
+    // Citas con fecha entre from y to (incluidos; null = sin límite) y estado en statuses (vacío = todos),
+    // leídas con un cursor de solo avance de fetchSize filas por viaje. extractor recorre el ResultSet:
+    // columnas con el nombre del campo en la API, sin pasar por entidades. Debe llamarse dentro de
+    // una transacción; sin ella el driver de PostgreSQL carga el resultado entero en memoria. Sin ORDER BY:
+    // las filas salen en el orden de la tabla y la primera llega sin esperar a ordenar millones.
+    <T> T exportRows(LocalDate from, LocalDate to, Collection<Appointment.AppointmentStatus> statuses,
+                     int fetchSize, ResultSetExtractor<T> extractor);
+}
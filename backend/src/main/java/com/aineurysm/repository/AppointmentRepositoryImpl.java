@@ -0,0 +1,155 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.Appointment;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Fragmento de AppointmentRepository para las operaciones masivas del panel de administración
+public class AppointmentRepositoryImpl implements AppointmentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.appointments.bulk.batch-size:200}")
+    private int batchSize;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final String EXPORT_SQL =
+        "SELECT id, appointment_date AS \"date\", appointment_time AS \"time\", doctor_id AS \"doctorId\", " +
+        "doctor_name AS \"doctor\", doctor_specialty AS \"specialty\", patient_id AS \"patientId\", " +
+        "patient_name AS \"patientName\", patient_email AS \"patientEmail\", status, " +
+        "created_at AS \"createdAt\", updated_at AS \"updatedAt\" FROM appointments WHERE 1 = 1";
+
+    // Se averigua con la primera reserva: null hasta entonces
+    private volatile Boolean advisoryLocks;
+
+    @Override
+    public List<Object[]> findStatusSlotsByFilter(Collection<Appointment.AppointmentStatus> statuses,
+                                                  Long doctorId, LocalDate date, int limit) {
+        StringBuilder jpql = new StringBuilder(
+            "SELECT a.id, a.status, a.doctorId, a.date, a.time, a.patientId FROM Appointment a WHERE a.status IN :statuses");
+        if (doctorId != null) {
+            jpql.append(" AND a.doctorId = :doctorId");
+        }
+        if (date != null) {
+            jpql.append(" AND a.date = :date");
+        }
+        jpql.append(" ORDER BY a.date, a.time, a.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+            .setParameter("statuses", statuses)
+            .setMaxResults(limit);
+        if (doctorId != null) {
+            query.setParameter("doctorId", doctorId);
+        }
+        if (date != null) {
+            query.setParameter("date", date);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public int[] updateStatusIfIn(List<Long> ids, Appointment.AppointmentStatus target,
+                                  Collection<Appointment.AppointmentStatus> sources) {
+        if (ids.isEmpty() || sources.isEmpty()) {
+            return new int[ids.size()];
+        }
+
+        String sql = "UPDATE appointments SET status = ?, updated_at = ?, version = version + 1 WHERE id = ? AND status IN ("
+            + String.join(", ", Collections.nCopies(sources.size(), "?")) + ")";
+        List<String> sourceNames = new ArrayList<>(sources.size());
+        sources.forEach(source -> sourceNames.add(source.name()));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[][] batches = jdbcTemplate.batchUpdate(sql, ids, batchSize, (ps, id) -> {
+            int index = 1;
+            ps.setString(index++, target.name());
+            ps.setTimestamp(index++, now);
+            ps.setLong(index++, id);
+            for (String source : sourceNames) {
+                ps.setString(index++, source);
+            }
+        });
+
+        int[] counts = new int[ids.size()];
+        int position = 0;
+        for (int[] batch : batches) {
+            for (int count : batch) {
+                counts[position++] = count;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void lockSlot(Long doctorId, LocalDate date, LocalTime time) {
+        if (!supportsAdvisoryLocks()) {
+            return;
+        }
+        // Clave de dos enteros: el médico y el minuto del horario contado desde 1970
+        int slot = (int) (date.toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute());
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", (RowCallbackHandler) rs -> { },
+            Long.hashCode(doctorId), slot);
+    }
+
+    private boolean supportsAdvisoryLocks() {
+        Boolean supported = advisoryLocks;
+        if (supported == null) {
+            supported = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            advisoryLocks = supported;
+        }
+        return supported;
+    }
+
+    @Override
+    public <T> T exportRows(LocalDate from, LocalDate to, Collection<Appointment.AppointmentStatus> statuses,
+                            int fetchSize, ResultSetExtractor<T> extractor) {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND appointment_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND appointment_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        if (statuses != null && !statuses.isEmpty()) {
+            sql.append(" AND status IN (").append(String.join(", ", Collections.nCopies(statuses.size(), "?"))).append(")");
+            statuses.forEach(status -> params.add(status.name()));
+        }
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, extractor);
+    }
+}
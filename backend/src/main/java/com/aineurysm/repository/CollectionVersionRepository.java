@@ -0,0 +1,23 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.CollectionVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CollectionVersionRepository extends JpaRepository<CollectionVersion, String> {
+
+    // Consulta directa y no findById: la entidad no se queda en el contexto de persistencia de la petición
+    @Query(value = "SELECT version FROM collection_versions WHERE collection = ?1", nativeQuery = true)
+    Long findVersion(String collection);
+
+    // En la transacción de la escritura, justo antes de confirmarla: la fila queda bloqueada solo
+    // durante el commit. 0 si la colección no tiene fila (V10 crea las tres)
+    @Transactional
+    @Modifying
+    @Query("UPDATE CollectionVersion v SET v.version = v.version + 1 WHERE v.collection = ?1")
+    int increment(String collection);
+}
@@ -0,0 +1,40 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Reserva la clave para una petición en curso hasta ?4. Devuelve 1 si la clave era nueva o estaba
+    // caducada (respuesta vencida o petición abandonada), 0 si otra petición la tiene.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (id, request_hash, created_at, expires_at) VALUES (?1, ?2, ?3, ?4) " +
+           "ON CONFLICT (id) DO UPDATE SET request_hash = EXCLUDED.request_hash, status_code = NULL, response_body = NULL, " +
+           "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at WHERE idempotency_keys.expires_at < EXCLUDED.created_at",
+           nativeQuery = true)
+    int claim(String id, String requestHash, LocalDateTime now, LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = ?2, r.responseBody = ?3, r.expiresAt = ?4 WHERE r.id = ?1")
+    int complete(String id, int statusCode, String responseBody, LocalDateTime expiresAt);
+
+    // Libera una clave cuya petición no terminó bien: el reintento vuelve a ejecutarla
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = ?1 AND r.statusCode IS NULL")
+    int release(String id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < ?1")
+    int deleteExpired(LocalDateTime now);
+}
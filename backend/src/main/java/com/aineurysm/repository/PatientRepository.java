@@ -1,21 +1,44 @@
 package com.aineurysm.repository;
 
 import com.aineurysm.model.Patient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Long> {
+public interface PatientRepository extends JpaRepository<Patient, Long>, PatientRepositoryCustom {
     Optional<Patient> findByEmail(String email);
     
     List<Patient> findByStatus(Patient.PatientStatus status);
     
-    @Query("SELECT p FROM Patient p WHERE p.name LIKE %?1% OR p.email LIKE %?1%")
-    List<Patient> findByNameOrEmailContaining(String searchTerm);
+    // Búsqueda sobre search_text (índice GIN pg_trgm): primero los que empiezan por el término,
+    // luego los que tienen una palabra que empieza por él y al final el resto de coincidencias.
+    // Slice y no Page: sin COUNT(*), que con un término frecuente recorre casi toda la tabla por el
+    // índice; se lee una fila más que el tamaño de página para saber si hay siguiente
+    @Query("SELECT p FROM Patient p WHERE p.searchText LIKE CONCAT('%', ?1, '%') " +
+           "ORDER BY CASE WHEN p.searchText LIKE CONCAT(?1, '%') THEN 0 " +
+           "WHEN p.searchText LIKE CONCAT('% ', ?1, '%') THEN 1 ELSE 2 END, p.name, p.id")
+    Slice<Patient> searchByText(String normalizedTerm, Pageable pageable);
+    
+    // Términos de menos de tres letras no generan trigramas: solo prefijo, con índice text_pattern_ops.
+    // Con una o dos letras coincide buena parte de la tabla: tampoco se cuenta
+    @Query("SELECT p FROM Patient p WHERE p.searchText LIKE CONCAT(?1, '%') ORDER BY p.name, p.id")
+    Slice<Patient> searchByPrefix(String normalizedTerm, Pageable pageable);
+    
+    List<Patient> findBySearchTextIsNull(Pageable pageable);
+    
+    // Sincronización incremental: cambios posteriores a (updatedAt, id) y no más nuevos que el horizonte
+    @Query("SELECT p FROM Patient p WHERE p.updatedAt >= ?1 AND (p.updatedAt > ?1 OR p.id > ?2) AND p.updatedAt <= ?3 ORDER BY p.updatedAt, p.id")
+    List<Patient> findChangedSince(LocalDateTime updatedAt, Long id, LocalDateTime horizon, Pageable pageable);
     
     @Query("SELECT COUNT(p) FROM Patient p WHERE p.status = 'ACTIVE'")
     Long countActivePatients();
@@ -25,4 +48,58 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     
     @Query("SELECT COUNT(p) FROM Patient p WHERE p.nextAppointment IS NOT NULL")
     Long countUpcomingAppointments();
+    
+    // Bloquea la fila del paciente hasta el final de la transacción de la cola. Cada transición la toma
+    // antes de tocar analysis_jobs: así dos transiciones del mismo paciente van una detrás de otra y,
+    // como en READ COMMITTED cada sentencia lee lo confirmado al empezar, los EXISTS de abajo ya ven
+    // el trabajo que cerró la anterior. null si el paciente no existe.
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "SELECT id FROM patients WHERE id = ?1 FOR UPDATE", nativeQuery = true)
+    Long lockForAnalysis(Long id);
+
+    @Query("SELECT p.lastAnalysisResult FROM Patient p WHERE p.id = ?1")
+    Patient.AnalysisResult findAnalysisResultById(Long id);
+
+    // Resultado de análisis según la cola (analysis_jobs): PENDING mientras el paciente tenga algún
+    // análisis en QUEUED o RUNNING. Se ejecutan en la misma transacción que el cambio de la cola,
+    // con el paciente bloqueado por lockForAnalysis.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE patients SET last_analysis_result = 'PENDING', updated_at = ?2 WHERE id = ?1", nativeQuery = true)
+    int markAnalysisPending(Long id, LocalDateTime now);
+    
+    // Un análisis terminado: suma uno a total_analyses y deja su resultado salvo que quede otro pendiente
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE patients SET total_analyses = COALESCE(total_analyses, 0) + 1, " +
+           "last_analysis_result = CASE WHEN EXISTS (SELECT 1 FROM analysis_jobs j WHERE j.patient_id = ?1 " +
+           "AND j.status IN ('QUEUED', 'RUNNING')) THEN 'PENDING' ELSE ?2 END, updated_at = ?3 WHERE id = ?1",
+           nativeQuery = true)
+    int recordAnalysisResult(Long id, String result, LocalDateTime now);
+    
+    // Un análisis descartado (DEAD): si no queda otro pendiente, vuelve el último resultado conocido,
+    // el del último análisis terminado o, si no hay ninguno, el que tenía el paciente al encolar
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE patients SET last_analysis_result = CASE WHEN EXISTS (SELECT 1 FROM analysis_jobs j " +
+           "WHERE j.patient_id = ?1 AND j.status IN ('QUEUED', 'RUNNING')) THEN 'PENDING' ELSE COALESCE(" +
+           "(SELECT j.result FROM analysis_jobs j WHERE j.patient_id = ?1 AND j.status = 'DONE' ORDER BY j.finished_at DESC, j.id DESC LIMIT 1), " +
+           "(SELECT j.previous_result FROM analysis_jobs j WHERE j.patient_id = ?1 AND j.previous_result <> 'PENDING' ORDER BY j.id DESC LIMIT 1)) END, " +
+           "updated_at = ?2 WHERE id = ?1", nativeQuery = true)
+    int restoreAnalysisResult(Long id, LocalDateTime now);
+    
+    // Todos los contadores del dashboard en una sola consulta
+    @Query("SELECT COUNT(p) AS totalPatients, " +
+           "COALESCE(SUM(CASE WHEN p.status = 'ACTIVE' THEN 1 ELSE 0 END), 0) AS activePatients, " +
+           "COALESCE(SUM(CASE WHEN p.lastAnalysisResult = 'PENDING' THEN 1 ELSE 0 END), 0) AS pendingAnalyses, " +
+           "COALESCE(SUM(CASE WHEN p.nextAppointment IS NOT NULL THEN 1 ELSE 0 END), 0) AS upcomingAppointments " +
+           "FROM Patient p")
+    StatsView aggregateStats();
+    
+    interface StatsView {
+        Long getTotalPatients();
+        Long getActivePatients();
+        Long getPendingAnalyses();
+        Long getUpcomingAppointments();
+    }
 }
\ No newline at end of file
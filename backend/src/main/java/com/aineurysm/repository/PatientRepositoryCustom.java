@@ -0,0 +1,20 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.Patient;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.LocalDate;
+
+import java.util.List;
+
+public interface PatientRepositoryCustom {
+
+    // Un único INSERT del lote con ON CONFLICT (email) DO NOTHING; devuelve cuántas filas insertó.
+    // Los ids salen de la secuencia de la tabla y cada llamada es su propia transacción.
+    int insertSkippingExistingEmails(List<Patient> patients);
+
+    // Pacientes dados de alta entre from y to (incluidos; null = sin límite) y con ese estado (null =
+    // todos), con un cursor de solo avance como AppointmentRepositoryCustom.exportRows
+    <T> T exportRows(LocalDate from, LocalDate to, Patient.PatientStatus status,
+                     int fetchSize, ResultSetExtractor<T> extractor);
+}
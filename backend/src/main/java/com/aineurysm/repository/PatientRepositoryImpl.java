@@ -0,0 +1,99 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.Patient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fragmento de PatientRepository para la importación y la exportación masivas. Patient usa IDENTITY,
+// así que Hibernate no agrupa sus INSERT: aquí se escribe un lote entero en una sola sentencia.
+public class PatientRepositoryImpl implements PatientRepositoryCustom {
+
+    // Un array por columna en lugar de un VALUES con siete parámetros por fila: la sentencia es
+    // siempre la misma, se envían cinco parámetros y PostgreSQL la analiza una sola vez.
+    // ON CONFLICT también descarta un email repetido dentro del lote: la segunda fila choca con la primera.
+    private static final String INSERT_SQL =
+        "INSERT INTO patients (name, email, phone, status, total_analyses, created_at, updated_at, search_text) " +
+        "SELECT r.name, r.email, r.phone, r.status, 0, ?, ?, r.search_text " +
+        "FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[]) AS r(name, email, phone, status, search_text) " +
+        "ON CONFLICT (email) DO NOTHING";
+
+    private static final String EXPORT_SQL =
+        "SELECT id, name, email, phone, status, last_visit AS \"lastVisit\", next_appointment AS \"nextAppointment\", " +
+        "total_analyses AS \"totalAnalyses\", last_analysis_result AS \"lastAnalysisResult\", " +
+        "created_at AS \"createdAt\", updated_at AS \"updatedAt\" FROM patients WHERE 1 = 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertSkippingExistingEmails(List<Patient> patients) {
+        if (patients.isEmpty()) {
+            return 0;
+        }
+
+        int size = patients.size();
+        String[] names = new String[size];
+        String[] emails = new String[size];
+        String[] phones = new String[size];
+        String[] statuses = new String[size];
+        String[] searchTexts = new String[size];
+        for (int i = 0; i < size; i++) {
+            Patient patient = patients.get(i);
+            names[i] = patient.getName();
+            emails[i] = patient.getEmail();
+            phones[i] = patient.getPhone();
+            statuses[i] = patient.getStatus().name();
+            searchTexts[i] = patient.buildSearchText();
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(INSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setTimestamp(1, now);
+            ps.setTimestamp(2, now);
+            ps.setArray(3, connection.createArrayOf("varchar", names));
+            ps.setArray(4, connection.createArrayOf("varchar", emails));
+            ps.setArray(5, connection.createArrayOf("varchar", phones));
+            ps.setArray(6, connection.createArrayOf("varchar", statuses));
+            ps.setArray(7, connection.createArrayOf("varchar", searchTexts));
+        });
+    }
+
+    @Override
+    public <T> T exportRows(LocalDate from, LocalDate to, Patient.PatientStatus status,
+                            int fetchSize, ResultSetExtractor<T> extractor) {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.name());
+        }
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, extractor);
+    }
+}
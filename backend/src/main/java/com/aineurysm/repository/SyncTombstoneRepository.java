@@ -0,0 +1,30 @@
+package com.aineurysm.repository;
+
+import com.aineurysm.model.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    // Ids borrados en (desde, hasta]; solo el id viaja al cliente
+    @Query("SELECT t.entityId FROM SyncTombstone t WHERE t.entityType = ?1 AND t.deletedAt > ?2 AND t.deletedAt <= ?3")
+    List<Long> findDeletedIds(String entityType, LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT t.entityId FROM SyncTombstone t WHERE t.entityType = ?1 AND t.deletedAt > ?2 AND t.deletedAt <= ?3 AND t.doctorId = ?4")
+    List<Long> findDeletedIdsByDoctorId(String entityType, LocalDateTime from, LocalDateTime to, Long doctorId);
+
+    @Query("SELECT t.entityId FROM SyncTombstone t WHERE t.entityType = ?1 AND t.deletedAt > ?2 AND t.deletedAt <= ?3 AND t.patientId = ?4")
+    List<Long> findDeletedIdsByPatientId(String entityType, LocalDateTime from, LocalDateTime to, Long patientId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SyncTombstone t WHERE t.deletedAt < ?1")
+    int deleteOlderThan(LocalDateTime cutoff);
+}
@@ -20,4 +20,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByRoleAndIsApproved(String role, boolean isApproved);
     
     List<User> findByRoleAndIsApprovedAndIsActive(String role, boolean isApproved, boolean isActive);
+    
+    List<User> findByRoleAndName(String role, String name);
 }
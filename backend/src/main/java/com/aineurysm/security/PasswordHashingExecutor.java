@@ -0,0 +1,197 @@
+package com.aineurysm.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pool acotado para BCrypt: las peticiones de login y registro esperan aquí en lugar
+// de consumir CPU en los hilos de Tomcat. El login tiene prioridad sobre el registro
+// y, si la cola está llena, la petición se rechaza de inmediato.
+@Component
+public class PasswordHashingExecutor {
+
+    public enum Priority {
+        LOGIN, REGISTER
+    }
+
+    private static final String BUSY_MESSAGE = "El servidor está ocupado, intenta de nuevo en unos segundos";
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Semaphore admission;
+
+    private final long timeoutInMs;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final Timer matchesTimer;
+
+    private final Timer encodeTimer;
+
+    private final Timer queueWaitTimer;
+
+    public PasswordHashingExecutor(PasswordEncoder passwordEncoder,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.password-hashing.threads:0}") int threads,
+                                   @Value("${app.password-hashing.queue-capacity:200}") int queueCapacity,
+                                   @Value("${app.password-hashing.timeout:10000}") long timeoutInMs) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutInMs = timeoutInMs;
+        this.admission = new Semaphore(poolSize + queueCapacity);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), new HashingThreadFactory());
+
+        this.matchesTimer = hashingTimer(meterRegistry, "matches");
+        this.encodeTimer = hashingTimer(meterRegistry, "encode");
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .description("Tiempo de espera en la cola de BCrypt")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.depth", this, PasswordHashingExecutor::getQueueDepth)
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", this, PasswordHashingExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("auth.password.rejected", this, PasswordHashingExecutor::getRejectedCount)
+                .register(meterRegistry);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return execute(Priority.LOGIN, matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(String rawPassword) {
+        return execute(Priority.REGISTER, encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Timer hashingTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hashing")
+                .description("Tiempo de CPU de BCrypt")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+    }
+
+    private <T> T execute(Priority priority, Timer timer, Callable<T> work) {
+        if (!admission.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            throw new RuntimeException(BUSY_MESSAGE);
+        }
+
+        long enqueuedAt = System.nanoTime();
+        HashingTask<T> task = new HashingTask<>(priority, sequence.getAndIncrement(), () -> {
+            queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            return timer.recordCallable(work);
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            rejectedCount.incrementAndGet();
+            throw new RuntimeException(BUSY_MESSAGE);
+        }
+
+        try {
+            return task.get(timeoutInMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            discard(task);
+            rejectedCount.incrementAndGet();
+            throw new RuntimeException(BUSY_MESSAGE);
+        } catch (InterruptedException e) {
+            discard(task);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(BUSY_MESSAGE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Una tarea cancelada se saca de la cola y devuelve su plaza; si un hilo ya la tomó,
+    // la devuelve ese hilo al terminar (run). Así la cola nunca pasa de queue-capacity.
+    private void discard(HashingTask<?> task) {
+        task.cancel(false);
+        if (executor.remove(task)) {
+            admission.release();
+        }
+    }
+
+    // Orden en la cola: prioridad y, dentro de la misma prioridad, orden de llegada
+    private final class HashingTask<T> extends FutureTask<T> implements Comparable<HashingTask<?>> {
+        private final Priority priority;
+        private final long sequence;
+
+        HashingTask(Priority priority, long sequence, Callable<T> work) {
+            super(work);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(HashingTask<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+
+        // La plaza se devuelve cuando un hilo termina la tarea o la descarta por estar cancelada
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                admission.release();
+            }
+        }
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
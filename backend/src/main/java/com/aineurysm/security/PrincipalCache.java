@@ -0,0 +1,62 @@
+package com.aineurysm.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.function.Function;
+
+@Component
+public class PrincipalCache {
+
+    private final Cache<Key, UserDetails> cache;
+
+    public PrincipalCache(MeterRegistry meterRegistry,
+                          @Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${jwt.principal-cache.ttl:60000}") long ttlInMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlInMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.principals");
+    }
+
+    // Devuelve el principal cacheado para (email, emisión del token) o lo carga con el loader
+    public UserDetails get(String email, Date issuedAt, Function<String, UserDetails> loader) {
+        long issuedAtMs = issuedAt != null ? issuedAt.getTime() : 0L;
+        return cache.get(new Key(email, issuedAtMs), key -> loader.apply(key.email()));
+    }
+
+    // Elimina todas las entradas del usuario, sin importar con qué token se cargaron
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        cache.asMap().keySet().removeIf(key -> key.email().equals(email));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    private record Key(String email, long issuedAt) {}
+}
@@ -0,0 +1,283 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.AnalysisOutcome;
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.repository.AnalysisJobRepository;
+import com.aineurysm.repository.PatientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Cola persistente de análisis de IA (tabla analysis_jobs, V9). Aquí están todas las transiciones:
+// encolar, reclamar, terminar, reintentar y descartar; los hilos que ejecutan los análisis están en
+// AnalysisWorker. Cada transición que afecta al paciente (PENDING al encolar, resultado y
+// total_analyses al terminar) se hace en la misma transacción que el cambio de la cola, empezando
+// por bloquear la fila del paciente (PatientRepository.lockForAnalysis).
+@Service
+public class AnalysisQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisQueue.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final int MAX_FILE_NAME_LENGTH = 255;
+
+    @Autowired
+    private AnalysisJobRepository jobRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.upload-dir:uploads/}")
+    private String uploadDir;
+
+    @Value("${app.analysis.max-queued:10000}")
+    private long maxQueued;
+
+    @Value("${app.analysis.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.analysis.retry-backoff:10000}")
+    private long retryBackoffInMs;
+
+    @Value("${app.analysis.max-retry-backoff:600000}")
+    private long maxRetryBackoffInMs;
+
+    @Value("${app.analysis.lease:600000}")
+    private long leaseInMs;
+
+    // Guarda el fichero en app.upload-dir y encola el análisis. Con más de max-queued trabajos
+    // esperando se rechaza (RejectedExecutionException) en lugar de alargar la cola sin límite.
+    public AnalysisJob enqueue(Long patientId, MultipartFile file) throws IOException {
+        if (!patientRepository.existsById(patientId)) {
+            throw new RuntimeException("Paciente no encontrado");
+        }
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("Falta el fichero a analizar");
+        }
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "imagen";
+        if (!isSupported(fileName, file.getContentType())) {
+            throw new RuntimeException("Tipo de archivo no soportado: se aceptan imágenes JPEG, PNG y DICOM (.dcm)");
+        }
+        if (jobRepository.countByStatus(AnalysisJob.Status.QUEUED) >= maxQueued) {
+            count("rejected");
+            throw new RejectedExecutionException("Hay demasiados análisis en cola, intenta de nuevo en unos minutos");
+        }
+
+        // Nombre propio en disco: el del cliente solo se guarda para mostrarlo
+        String inputPath = "analyses/" + UUID.randomUUID() + extension(fileName);
+        Path target = resolve(inputPath);
+        Files.createDirectories(target.getParent());
+        file.transferTo(target);
+
+        AnalysisJob saved;
+        try {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            saved = transaction.execute(status -> {
+                if (patientRepository.lockForAnalysis(patientId) == null) {
+                    throw new RuntimeException("Paciente no encontrado");
+                }
+                AnalysisJob job = new AnalysisJob();
+                job.setPatientId(patientId);
+                job.setStatus(AnalysisJob.Status.QUEUED);
+                job.setFileName(fileName.length() > MAX_FILE_NAME_LENGTH ? fileName.substring(0, MAX_FILE_NAME_LENGTH) : fileName);
+                job.setContentType(file.getContentType());
+                job.setInputPath(inputPath);
+                job.setAttempts(0);
+                job.setRunAfter(LocalDateTime.now());
+                job.setPreviousResult(patientRepository.findAnalysisResultById(patientId));
+                AnalysisJob created = jobRepository.save(job);
+                patientRepository.markAnalysisPending(patientId, LocalDateTime.now());
+                return created;
+            });
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+
+        patientService.analysesChanged();
+        count("queued");
+        logger.info("Análisis encolado {} {}", kv("jobId", saved.getId()), kv("patientId", patientId));
+        return saved;
+    }
+
+    // Reclama hasta limit trabajos para worker: pasan a RUNNING con attempts + 1 y el plazo en run_after
+    public List<AnalysisJob> claim(int limit, String worker) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<AnalysisJob> jobs = jobRepository.findClaimable(now, limit);
+            for (AnalysisJob job : jobs) {
+                if (job.getStatus() == AnalysisJob.Status.RUNNING) {
+                    logger.warn("Análisis retomado: venció el plazo del worker anterior {} {}",
+                        kv("jobId", job.getId()), kv("previousWorker", job.getLockedBy()));
+                }
+                job.setStatus(AnalysisJob.Status.RUNNING);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setLockedBy(worker);
+                job.setRunAfter(now.plus(leaseInMs, ChronoUnit.MILLIS));
+            }
+            return jobs;
+        });
+    }
+
+    // Guarda el resultado y, en la misma transacción, actualiza el paciente. Si el trabajo ya no es
+    // de este worker (plazo vencido y reclamado por otro) el resultado se descarta.
+    public void complete(AnalysisJob job, AnalysisOutcome outcome) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Boolean completed = transaction.execute(status -> {
+            patientRepository.lockForAnalysis(job.getPatientId());
+            LocalDateTime now = LocalDateTime.now();
+            if (jobRepository.complete(job.getId(), job.getAttempts(), outcome.getResult(),
+                    outcome.getConfidence(), outcome.getFindings(), now) == 0) {
+                return false;
+            }
+            patientRepository.recordAnalysisResult(job.getPatientId(), outcome.getResult().name(), now);
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(completed)) {
+            patientService.analysesChanged();
+            count("done");
+            logger.info("Análisis terminado {} {} {}", kv("jobId", job.getId()), kv("patientId", job.getPatientId()),
+                kv("result", outcome.getResult()));
+        } else {
+            count("stale");
+            logger.warn("Resultado de análisis descartado: el trabajo ya no pertenece a este worker {}", kv("jobId", job.getId()));
+        }
+    }
+
+    // Intento fallido: vuelve a la cola con espera exponencial o, agotados los intentos, pasa a DEAD
+    // y el paciente recupera su último resultado
+    public void fail(AnalysisJob job, String error) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        LocalDateTime now = LocalDateTime.now();
+        if (job.getAttempts() < maxAttempts) {
+            long backoff = Math.min(retryBackoffInMs << Math.min(job.getAttempts() - 1, 20), maxRetryBackoffInMs);
+            if (jobRepository.retryLater(job.getId(), job.getAttempts(), message, now.plus(backoff, ChronoUnit.MILLIS), now) > 0) {
+                count("retried");
+                logger.warn("Análisis fallido, se reintentará {} {} {} {}", kv("jobId", job.getId()),
+                    kv("attempt", job.getAttempts()), kv("retryInMs", backoff), kv("error", message));
+            }
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Boolean dead = transaction.execute(status -> {
+            patientRepository.lockForAnalysis(job.getPatientId());
+            if (jobRepository.deadLetter(job.getId(), job.getAttempts(), message, now) == 0) {
+                return false;
+            }
+            patientRepository.restoreAnalysisResult(job.getPatientId(), now);
+            return true;
+        });
+        if (Boolean.TRUE.equals(dead)) {
+            patientService.analysesChanged();
+            count("dead");
+            logger.error("Análisis descartado tras agotar los intentos {} {} {}", kv("jobId", job.getId()),
+                kv("attempts", job.getAttempts()), kv("error", message));
+        }
+    }
+
+    // Apagado de la instancia con el análisis a medias: vuelve a la cola sin gastar el intento
+    public void release(AnalysisJob job) {
+        if (jobRepository.release(job.getId(), job.getAttempts(), LocalDateTime.now()) > 0) {
+            count("released");
+        }
+    }
+
+    // Reclamado más veces de las permitidas: cada worker murió o superó el plazo con él
+    public boolean isExhausted(AnalysisJob job) {
+        return job.getAttempts() > maxAttempts;
+    }
+
+    // Vuelve a encolar un análisis en DEAD con los intentos a cero
+    public AnalysisJob retry(Long id) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        AnalysisJob job = transaction.execute(status -> {
+            AnalysisJob current = jobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Análisis no encontrado"));
+            patientRepository.lockForAnalysis(current.getPatientId());
+            if (jobRepository.requeueDead(id, LocalDateTime.now()) == 0) {
+                throw new RuntimeException("Solo se pueden reintentar análisis descartados (dead)");
+            }
+            patientRepository.markAnalysisPending(current.getPatientId(), LocalDateTime.now());
+            return current;
+        });
+
+        patientService.analysesChanged();
+        count("requeued");
+        logger.info("Análisis descartado vuelto a encolar {}", kv("jobId", id));
+        return jobRepository.findById(job.getId()).orElse(job);
+    }
+
+    public Optional<AnalysisJob> getJob(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    public List<AnalysisJob> getJobs(Long patientId, AnalysisJob.Status status, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (patientId != null) {
+            return jobRepository.findByPatientIdOrderByIdDesc(patientId, page);
+        }
+        if (status != null) {
+            return jobRepository.findByStatusOrderByIdDesc(status, page);
+        }
+        return jobRepository.findAllByOrderByIdDesc(page);
+    }
+
+    public Path resolve(String inputPath) {
+        return Paths.get(uploadDir).resolve(inputPath);
+    }
+
+    private static boolean isSupported(String fileName, String contentType) {
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        return (contentType != null && (contentType.startsWith("image/") || contentType.equals("application/dicom")))
+            || lowerName.endsWith(".dcm") || lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg") || lowerName.endsWith(".png");
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot).toLowerCase(Locale.ROOT) : "";
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+
+    private void count(String outcome) {
+        Counter.builder("analysis.jobs")
+                .description("Trabajos de análisis: queued, rejected, done, retried, dead, released, requeued, stale")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,205 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.AnalysisOutcome;
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.model.Patient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Ejecuta los análisis de AnalysisQueue en un pool de app.analysis.worker.threads hilos. Un único
+// hilo consulta la cola y solo reclama tantos trabajos como hilos libres tiene: lo que esta
+// instancia no puede empezar ya se queda en la tabla para otra instancia, y con el pool lleno no
+// consulta hasta que termina algún análisis. Sin trabajo, consulta cada poll-interval.
+// Con threads = 0 la instancia solo encola.
+@Component
+public class AnalysisWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisWorker.class);
+
+    private final AnalysisQueue queue;
+
+    private final Analyzer analyzer;
+
+    private final int threads;
+
+    private final long pollIntervalInMs;
+
+    // Identifica a esta instancia en analysis_jobs.locked_by
+    private final String workerId;
+
+    private final Semaphore freeSlots;
+
+    private final AtomicInteger busy = new AtomicInteger();
+
+    private final Timer durationTimer;
+
+    private ExecutorService executor;
+
+    private Thread poller;
+
+    private volatile boolean running;
+
+    public AnalysisWorker(AnalysisQueue queue, Analyzer analyzer, MeterRegistry meterRegistry,
+                          @Value("${app.analysis.worker.threads:2}") int threads,
+                          @Value("${app.analysis.worker.poll-interval:1000}") long pollIntervalInMs) {
+        this.queue = queue;
+        this.analyzer = analyzer;
+        this.threads = threads;
+        this.pollIntervalInMs = pollIntervalInMs;
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.freeSlots = new Semaphore(Math.max(threads, 0));
+
+        this.durationTimer = Timer.builder("analysis.duration")
+                .description("Tiempo de cada análisis en el Analyzer")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("analysis.workers.busy", busy, AtomicInteger::get)
+                .description("Hilos de análisis ocupados en esta instancia")
+                .register(meterRegistry);
+    }
+
+    // Tras el arranque completo: las migraciones ya crearon analysis_jobs
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (threads <= 0) {
+            logger.info("Worker de análisis desactivado (app.analysis.worker.threads = 0)");
+            return;
+        }
+        running = true;
+        executor = Executors.newFixedThreadPool(threads, new AnalysisThreadFactory("analysis-worker-"));
+        poller = new AnalysisThreadFactory("analysis-poller-").newThread(this::pollLoop);
+        poller.start();
+        logger.info("Worker de análisis iniciado {} {}", kv("workerId", workerId), kv("threads", threads));
+    }
+
+    // Los análisis en curso se interrumpen y vuelven a la cola sin gastar intento
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (poller == null) {
+            return;
+        }
+        LockSupport.unpark(poller);
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void pollLoop() {
+        while (running) {
+            int free = freeSlots.availablePermits();
+            boolean full = false;
+            if (free > 0) {
+                try {
+                    List<AnalysisJob> jobs = queue.claim(free, workerId);
+                    for (AnalysisJob job : jobs) {
+                        start(job);
+                    }
+                    // Se llenó el lote: probablemente queda más trabajo, se vuelve a mirar en cuanto haya un hilo libre
+                    full = jobs.size() == free;
+                } catch (Exception e) {
+                    logger.warn("No se pudo consultar la cola de análisis {}", kv("error", e.getMessage()));
+                }
+            }
+            // Hasta que termine un análisis (run lo despierta) o, como mucho, poll-interval
+            if (!full || freeSlots.availablePermits() == 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(pollIntervalInMs));
+            }
+        }
+    }
+
+    // Si la instancia se está parando (o el pool ya no acepta tareas) el trabajo reclamado vuelve a la
+    // cola sin gastar intento, en lugar de quedarse en RUNNING hasta que venza el plazo
+    private void start(AnalysisJob job) {
+        if (!running) {
+            giveBack(job);
+            return;
+        }
+        freeSlots.acquireUninterruptibly();
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            freeSlots.release();
+            giveBack(job);
+        }
+    }
+
+    private void giveBack(AnalysisJob job) {
+        try {
+            queue.release(job);
+        } catch (Exception e) {
+            // Sin base de datos: el trabajo sigue en RUNNING y se retoma al vencer el plazo
+            logger.warn("No se pudo devolver el análisis a la cola {} {}", kv("jobId", job.getId()),
+                kv("error", e.getMessage()));
+        }
+    }
+
+    private void run(AnalysisJob job) {
+        busy.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            if (queue.isExhausted(job)) {
+                queue.fail(job, "Superado el número de intentos: el análisis no terminó dentro del plazo");
+                return;
+            }
+            AnalysisOutcome outcome = analyzer.analyze(job, queue.resolve(job.getInputPath()));
+            if (outcome == null || outcome.getResult() == null || outcome.getResult() == Patient.AnalysisResult.PENDING) {
+                throw new IllegalStateException("El analizador no devolvió NORMAL ni ABNORMAL");
+            }
+            queue.complete(job, outcome);
+        } catch (InterruptedException e) {
+            queue.release(job);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            try {
+                queue.fail(job, e.getClass().getSimpleName() + ": " + e.getMessage());
+            } catch (Exception failure) {
+                // Sin base de datos: el trabajo sigue en RUNNING y se retoma al vencer el plazo
+                logger.error("No se pudo registrar el fallo del análisis {} {}", kv("jobId", job.getId()),
+                    kv("error", failure.getMessage()));
+            }
+        } finally {
+            durationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            busy.decrementAndGet();
+            freeSlots.release();
+            LockSupport.unpark(poller);
+        }
+    }
+
+    private static final class AnalysisThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        AnalysisThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
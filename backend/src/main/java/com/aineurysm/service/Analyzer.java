@@ -0,0 +1,15 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.AnalysisOutcome;
+import com.aineurysm.model.AnalysisJob;
+
+import java.nio.file.Path;
+
+// Motor de análisis que ejecutan los workers de AnalysisWorker. Se elige con app.analysis.analyzer;
+// LocalAnalyzer (local) es el sustituto sin modelo real para desarrollo y pruebas.
+// Una excepción cuenta como intento fallido: el trabajo se reintenta y, agotados los intentos, pasa
+// a DEAD. Puede tardar lo que necesite mientras no supere app.analysis.lease.
+public interface Analyzer {
+
+    AnalysisOutcome analyze(AnalysisJob job, Path input) throws Exception;
+}
@@ -0,0 +1,328 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.AppointmentEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Canal SSE de cambios de citas. Cada conexión abierta es una petición asíncrona de Tomcat
+// (sin hilo asignado) con una cola acotada; publicar solo encola el evento ya serializado
+// en las colas de los suscriptores interesados y unos pocos hilos de envío las vacían.
+// Un suscriptor que no consume (cola llena) se desconecta: el cliente reconecta y recarga.
+// Cada usuario mantiene como mucho max-per-user conexiones: al abrir otra se cierra la más
+// antigua (evento "replaced", el cliente no reconecta), así nadie agota max-subscribers solo.
+@Component
+public class AppointmentEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentEventBroadcaster.class);
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxSubscribers;
+
+    private final int maxPerUser;
+
+    private final int queueCapacity;
+
+    private final long timeoutInMs;
+
+    private final Set<Subscriber> admins = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> byDoctor = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> byPatient = new ConcurrentHashMap<>();
+
+    // Conexiones de cada usuario en orden de apertura, para cerrar la más antigua
+    private final ConcurrentHashMap<Long, Deque<Subscriber>> byUser = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ExecutorService senders;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final Counter droppedCounter;
+
+    private final Counter publishedCounter;
+
+    private final Counter replacedCounter;
+
+    public AppointmentEventBroadcaster(ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.appointments.events.max-subscribers:10000}") int maxSubscribers,
+                                       @Value("${app.appointments.events.max-per-user:5}") int maxPerUser,
+                                       @Value("${app.appointments.events.queue-capacity:64}") int queueCapacity,
+                                       @Value("${app.appointments.events.sender-threads:2}") int senderThreads,
+                                       @Value("${app.appointments.events.heartbeat:20000}") long heartbeatInMs,
+                                       @Value("${app.appointments.events.timeout:1800000}") long timeoutInMs) {
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPerUser = Math.max(1, maxPerUser);
+        this.queueCapacity = queueCapacity;
+        this.timeoutInMs = timeoutInMs;
+        this.senders = Executors.newFixedThreadPool(senderThreads, new EventsThreadFactory("appointment-events-"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(new EventsThreadFactory("appointment-events-heartbeat-"));
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatInMs, heartbeatInMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("appointments.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Conexiones SSE abiertas")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("appointments.events.dropped")
+                .description("Suscriptores desconectados por no consumir sus eventos")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("appointments.events.published")
+                .register(meterRegistry);
+        this.replacedCounter = Counter.builder("appointments.events.replaced")
+                .description("Conexiones cerradas porque su usuario abrió más de max-per-user")
+                .register(meterRegistry);
+    }
+
+    // Administradores: todas las citas. Médicos: las suyas. Pacientes: las propias.
+    public SseEmitter subscribe(Long userId, String role) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RuntimeException("Demasiadas conexiones abiertas, intenta de nuevo en unos segundos");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutInMs);
+        ConcurrentHashMap<Long, Set<Subscriber>> index = switch (role) {
+            case "admin" -> null;
+            case "doctor" -> byDoctor;
+            default -> byPatient;
+        };
+        Subscriber subscriber = new Subscriber(emitter, index, userId, queueCapacity);
+        if (index == null) {
+            admins.add(subscriber);
+        } else {
+            index.compute(userId, (id, group) -> {
+                Set<Subscriber> subscribers = group != null ? group : ConcurrentHashMap.newKeySet();
+                subscribers.add(subscriber);
+                return subscribers;
+            });
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        Subscriber[] oldest = new Subscriber[1];
+        byUser.compute(userId, (id, connections) -> {
+            Deque<Subscriber> deque = connections != null ? connections : new ArrayDeque<>();
+            deque.addLast(subscriber);
+            if (deque.size() > maxPerUser) {
+                oldest[0] = deque.pollFirst();
+            }
+            return deque;
+        });
+        if (oldest[0] != null) {
+            replace(oldest[0]);
+        }
+
+        // Primer mensaje para que el cliente sepa que la suscripción está activa
+        enqueue(subscriber, SseEmitter.event().name("ready").data("{}").build());
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return subscriberCount.get() > 0;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // Serializa una sola vez y encola en cada suscriptor interesado; nunca bloquea al llamador
+    public void publish(AppointmentEvent event) {
+        if (!hasSubscribers()) {
+            return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> frame;
+        try {
+            frame = SseEmitter.event()
+                    .id(Long.toString(sequence.incrementAndGet()))
+                    .name(event.getType())
+                    .data(objectMapper.writeValueAsString(event))
+                    .build();
+        } catch (JsonProcessingException e) {
+            logger.warn("Evento de cita no serializable {}", kv("appointmentId", event.getId()), e);
+            return;
+        }
+        publishedCounter.increment();
+
+        admins.forEach(subscriber -> enqueue(subscriber, frame));
+        if (event.getDoctorId() != null) {
+            byDoctor.getOrDefault(event.getDoctorId(), Collections.emptySet()).forEach(subscriber -> enqueue(subscriber, frame));
+        }
+        if (event.getPatientId() != null) {
+            byPatient.getOrDefault(event.getPatientId(), Collections.emptySet()).forEach(subscriber -> enqueue(subscriber, frame));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        forEachSubscriber(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.queue.offer(frame)) {
+            droppedCounter.increment();
+            logger.debug("Suscriptor SSE desconectado por cola llena {}", kv("queueCapacity", queueCapacity));
+            close(subscriber);
+            return;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Un solo hilo a la vez por suscriptor, así los eventos salen en orden
+    private void drain(Subscriber subscriber) {
+        do {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while ((frame = subscriber.queue.poll()) != null) {
+                if (subscriber.closed) {
+                    subscriber.queue.clear();
+                    break;
+                }
+                try {
+                    subscriber.emitter.send(frame);
+                } catch (IOException | IllegalStateException e) {
+                    // Conexión cerrada por el cliente o petición asíncrona ya terminada
+                    close(subscriber);
+                }
+            }
+            subscriber.scheduled.set(false);
+        } while (!subscriber.queue.isEmpty() && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    private void sendHeartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("").build();
+        forEachSubscriber(subscriber -> {
+            if (subscriber.queue.isEmpty()) {
+                enqueue(subscriber, ping);
+            }
+        });
+    }
+
+    // Deja de recibir eventos en el acto; el aviso y el cierre salen por un hilo de envío
+    private void replace(Subscriber subscriber) {
+        if (!remove(subscriber)) {
+            return;
+        }
+        replacedCounter.increment();
+        logger.debug("Conexión SSE sustituida por una más reciente del mismo usuario {} {}",
+            kv("userId", subscriber.userId), kv("maxPerUser", maxPerUser));
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event().name("replaced").data("{}").build();
+        senders.execute(() -> {
+            try {
+                subscriber.emitter.send(frame);
+            } catch (IOException | IllegalStateException e) {
+                // El cliente ya se había ido
+            }
+            subscriber.emitter.complete();
+        });
+    }
+
+    private void close(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    // Quita el suscriptor y, si era la última conexión del usuario, también su entrada en el índice
+    private boolean remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        boolean[] removed = new boolean[1];
+        if (subscriber.index == null) {
+            removed[0] = admins.remove(subscriber);
+        } else {
+            subscriber.index.computeIfPresent(subscriber.userId, (id, group) -> {
+                removed[0] = group.remove(subscriber);
+                return group.isEmpty() ? null : group;
+            });
+        }
+        if (removed[0]) {
+            subscriberCount.decrementAndGet();
+            byUser.computeIfPresent(subscriber.userId, (id, connections) -> {
+                connections.remove(subscriber);
+                return connections.isEmpty() ? null : connections;
+            });
+        }
+        return removed[0];
+    }
+
+    private void forEachSubscriber(Consumer<Subscriber> action) {
+        admins.forEach(action);
+        byDoctor.values().forEach(group -> group.forEach(action));
+        byPatient.values().forEach(group -> group.forEach(action));
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final ConcurrentHashMap<Long, Set<Subscriber>> index;
+        private final Long userId;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, ConcurrentHashMap<Long, Set<Subscriber>> index, Long userId, int queueCapacity) {
+            this.emitter = emitter;
+            this.index = index;
+            this.userId = userId;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    private static final class EventsThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        EventsThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,14 +1,40 @@
 package com.aineurysm.service;
 
+import com.aineurysm.dto.AppointmentCursor;
+import com.aineurysm.dto.AppointmentEvent;
+import com.aineurysm.dto.AppointmentResponse;
+import com.aineurysm.dto.AvailableSlotResponse;
+import com.aineurysm.dto.BulkStatusResult;
+import com.aineurysm.dto.UserResponse;
 import com.aineurysm.model.Appointment;
 import com.aineurysm.repository.AppointmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AppointmentService {
@@ -16,6 +42,61 @@ public class AppointmentService {
     @Autowired
     private AppointmentRepository appointmentRepository;
 
+    @Autowired
+    private SlotAvailabilityIndex slotAvailabilityIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AppointmentEventBroadcaster eventBroadcaster;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.appointments.working-hours:09:00-12:00,14:00-18:00}")
+    private String workingHours;
+
+    @Value("${app.appointments.max-search-days:90}")
+    private int maxSearchDays;
+
+    @Value("${app.appointments.bulk.max-size:1000}")
+    private int bulkMaxSize;
+
+    // Inicio de cada bloque reservable dentro del horario de atención, en orden
+    private List<LocalTime> workingSlots;
+
+    private static final String SLOT_TAKEN_MESSAGE = "Ya existe una cita programada para esa fecha y hora con ese doctor";
+
+    // Índice único de horarios activos (V5): la única violación que significa "horario ocupado"
+    private static final String SLOT_CONSTRAINT = "uq_appointments_active_doctor_slot";
+
+    private static final String CONCURRENT_UPDATE_MESSAGE = "La cita fue modificada por otra persona, recarga e intenta de nuevo";
+
+    @PostConstruct
+    public void init() {
+        List<LocalTime> slots = new ArrayList<>();
+        for (String range : workingHours.split(",")) {
+            String[] bounds = range.trim().split("-");
+            LocalTime start = LocalTime.parse(bounds[0].trim());
+            LocalTime end = LocalTime.parse(bounds[1].trim());
+            for (LocalTime t = start; t.isBefore(end); t = t.plusMinutes(slotAvailabilityIndex.getSlotMinutes())) {
+                if (!slotAvailabilityIndex.isAligned(t)) {
+                    throw new IllegalStateException("El horario de atención no coincide con los bloques: " + range);
+                }
+                slots.add(t);
+            }
+        }
+        slots.sort(null);
+        workingSlots = List.copyOf(slots);
+    }
+
     public List<Appointment> getAllAppointments() {
         return appointmentRepository.findAll();
     }
@@ -24,44 +105,386 @@ public class AppointmentService {
         return appointmentRepository.findById(id);
     }
 
-    public List<Appointment> getAppointmentsByPatientEmail(String patientEmail) {
-        return appointmentRepository.findByPatientEmailOrderByDateDesc(patientEmail);
+    public List<Appointment> getAppointmentsByPatient(Long patientId) {
+        return appointmentRepository.findByPatientIdOrderByDateDesc(patientId);
     }
 
-    public List<Appointment> getAppointmentsByDoctor(String doctorName) {
-        return appointmentRepository.findByDoctorName(doctorName);
+    public List<Appointment> getAppointmentsByDoctor(Long doctorId) {
+        return appointmentRepository.findByDoctorId(doctorId);
     }
 
     public Appointment createAppointment(Appointment appointment) {
-        // Verificar si ya existe una cita en esa fecha y hora con ese doctor
-        List<Appointment> existingAppointments = appointmentRepository.findByDateAndTimeAndDoctor(
-            appointment.getDate(), 
-            appointment.getTime(), 
-            appointment.getDoctorName()
-        );
-        
-        if (!existingAppointments.isEmpty()) {
-            throw new RuntimeException("Ya existe una cita programada para esa fecha y hora con ese doctor");
+        if (!slotAvailabilityIndex.isAligned(appointment.getTime())) {
+            throw new RuntimeException("La hora debe coincidir con el inicio de un bloque de "
+                + slotAvailabilityIndex.getSlotMinutes() + " minutos");
+        }
+
+        if (appointment.getDoctorId() == null) {
+            if (appointment.getDoctorName() == null) {
+                throw new RuntimeException("Indica el médico de la cita");
+            }
+            appointment.setDoctorId(userService.findDoctorIdByName(appointment.getDoctorName()));
+        }
+
+        Long doctorId = appointment.getDoctorId();
+        LocalDate date = appointment.getDate();
+        LocalTime time = appointment.getTime();
+
+        // Reservar el horario en el índice de esta instancia. Si figura ocupado se confirma en la base
+        // de datos: otra instancia pudo rechazar o cancelar esa cita sin que este índice se enterase
+        if (!slotAvailabilityIndex.tryClaim(doctorId, date, time)) {
+            if (appointmentRepository.existsByDoctorIdAndDateAndTimeAndStatusIn(doctorId, date, time,
+                    Appointment.AppointmentStatus.activeStatuses())) {
+                throw new RuntimeException(SLOT_TAKEN_MESSAGE);
+            }
+            slotAvailabilityIndex.release(doctorId, date, time);
+            if (!slotAvailabilityIndex.tryClaim(doctorId, date, time)) {
+                throw new RuntimeException(SLOT_TAKEN_MESSAGE);
+            }
+        }
+
+        Appointment saved;
+        try {
+            // Nombre y especialidad se copian del médico, no de lo que envió el cliente
+            UserResponse doctor = userService.getBookableDoctor(doctorId);
+            appointment.setDoctorName(doctor.getName());
+            if (doctor.getSpecialty() != null) {
+                appointment.setDoctorSpecialty(doctor.getSpecialty());
+            }
+            appointment.setStatus(Appointment.AppointmentStatus.pending);
+
+            // El índice en memoria no ve las reservas de otras instancias: con el bloqueo del horario
+            // tomado, la comprobación y el INSERT no se cruzan con otra reserva del mismo médico y hora
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            saved = transaction.execute(tx -> {
+                appointmentRepository.lockSlot(doctorId, date, time);
+                if (appointmentRepository.existsByDoctorIdAndDateAndTimeAndStatusIn(doctorId, date, time,
+                        Appointment.AppointmentStatus.activeStatuses())) {
+                    return null;
+                }
+                return appointmentRepository.saveAndFlush(appointment);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Sin bloqueo (H2) el índice unique de la base de datos sigue siendo la garantía final.
+            // Cualquier otra restricción violada no significa que el horario esté ocupado
+            if (!isSlotConflict(e)) {
+                slotAvailabilityIndex.release(doctorId, date, time);
+                throw e;
+            }
+            saved = null;
+        } catch (RuntimeException e) {
+            slotAvailabilityIndex.release(doctorId, date, time);
+            throw e;
+        }
+        if (saved == null) {
+            // Otra instancia reservó el horario: en el índice se queda ocupado
+            throw new RuntimeException(SLOT_TAKEN_MESSAGE);
         }
 
-        appointment.setStatus(Appointment.AppointmentStatus.pending);
-        return appointmentRepository.save(appointment);
+        collectionVersions.bump(CollectionVersions.APPOINTMENTS);
+        eventBroadcaster.publish(new AppointmentEvent(AppointmentEvent.CREATED, saved.getId(), saved.getStatus().name(),
+            saved.getVersion(), saved.getDoctorId(), saved.getPatientId(), saved.getDate().toString(),
+            saved.getTime().toString(), new AppointmentResponse(saved)));
+        return saved;
     }
 
     public Appointment updateAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        Object[] previous = appointment.getId() != null ? findStoredState(appointment.getId()) : null;
+        Appointment saved = appointmentRepository.save(appointment);
+        collectionVersions.bump(CollectionVersions.APPOINTMENTS);
+
+        // Si la cita cambió de médico, fecha u hora, el horario anterior queda libre
+        if (previous != null && previous[2] != null
+                && ((Appointment.AppointmentStatus) previous[0]).occupiesSlot()
+                && !(previous[2].equals(saved.getDoctorId()) && previous[3].equals(saved.getDate())
+                    && previous[4].equals(saved.getTime()))) {
+            slotAvailabilityIndex.release((Long) previous[2], (LocalDate) previous[3], (LocalTime) previous[4]);
+        }
+        syncSlot(saved);
+        return saved;
+    }
+
+    // Estado guardado de la cita (proyección de findStateById). En una transacción nueva, con su propio
+    // contexto de persistencia: la entidad recibida puede ser la misma instancia ya modificada
+    private Object[] findStoredState(Long id) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnly.setReadOnly(true);
+        List<Object[]> state = readOnly.execute(status -> appointmentRepository.findStateById(id));
+        return state == null || state.isEmpty() ? null : state.get(0);
+    }
+
+    // Cambia el estado con un único UPDATE condicional (estado de origen permitido y, si se
+    // indica, la versión que vio el cliente). Solo cuando no se actualiza ninguna fila se lee
+    // la cita para explicar el motivo; después del cambio se lee para liberar el horario
+    // (rechazo o cancelación) y para avisar a los suscriptores de /events, si hay alguno.
+    public void transitionStatus(Long id, Appointment.AppointmentStatus target, Long expectedVersion) {
+        List<Appointment.AppointmentStatus> sources = target.allowedSources();
+        if (sources.isEmpty()) {
+            throw new RuntimeException("Ninguna cita puede pasar al estado " + target.name());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int updated = expectedVersion == null
+            ? appointmentRepository.transitionStatus(id, target, now, sources)
+            : appointmentRepository.transitionStatusIfVersion(id, target, now, sources, expectedVersion);
+
+        if (updated == 0) {
+            List<Object[]> state = appointmentRepository.findStateById(id);
+            if (state.isEmpty()) {
+                throw new RuntimeException("Cita no encontrada");
+            }
+            Appointment.AppointmentStatus current = (Appointment.AppointmentStatus) state.get(0)[0];
+            if (!current.canTransitionTo(target)) {
+                throw new RuntimeException("No se puede pasar una cita " + current.name() + " a " + target.name());
+            }
+            throw new RuntimeException(CONCURRENT_UPDATE_MESSAGE);
+        }
+        collectionVersions.bump(CollectionVersions.APPOINTMENTS);
+
+        if (!target.occupiesSlot() || eventBroadcaster.hasSubscribers()) {
+            List<Object[]> state = appointmentRepository.findStateById(id);
+            if (!state.isEmpty()) {
+                Object[] row = state.get(0);
+                if (!target.occupiesSlot()) {
+                    slotAvailabilityIndex.release((Long) row[2], (LocalDate) row[3], (LocalTime) row[4]);
+                }
+                eventBroadcaster.publish(statusEvent(id, target, (Long) row[1], row));
+            }
+        }
     }
 
     public void deleteAppointment(Long id) {
+        Optional<Appointment> appointment = appointmentRepository.findById(id);
         appointmentRepository.deleteById(id);
+        collectionVersions.bump(CollectionVersions.APPOINTMENTS);
+        appointment.ifPresent(a -> slotAvailabilityIndex.release(a.getDoctorId(), a.getDate(), a.getTime()));
     }
 
-    public boolean isTimeSlotAvailable(LocalDate date, LocalTime time, String doctorName) {
-        List<Appointment> existingAppointments = appointmentRepository.findByDateAndTimeAndDoctor(date, time, doctorName);
-        return existingAppointments.isEmpty();
+    // Aprobación/rechazo/cancelación masiva: un SELECT de proyección para conocer las citas y
+    // UPDATE condicionales (WHERE id = ? AND status IN ...) enviados en lotes JDBC, sin cargar
+    // entidades. Con filtro se procesan como mucho bulk.max-size citas por llamada.
+    public List<BulkStatusResult> bulkUpdateStatus(String action, List<Long> ids, String status,
+                                                   Long doctorId, LocalDate date) {
+        Appointment.AppointmentStatus target = parseAction(action);
+        List<Appointment.AppointmentStatus> sources = target.allowedSources();
+
+        List<Long> requested;
+        List<Object[]> rows;
+        if (ids != null && !ids.isEmpty()) {
+            requested = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+            if (requested.size() > bulkMaxSize) {
+                throw new RuntimeException("Se pueden procesar como máximo " + bulkMaxSize + " citas por operación");
+            }
+            rows = appointmentRepository.findStatusSlotsByIds(requested);
+        } else {
+            if (status == null && doctorId == null && date == null) {
+                throw new RuntimeException("Indica una lista de ids o un filtro (status, doctorId, date)");
+            }
+            List<Appointment.AppointmentStatus> filter = sources;
+            if (status != null) {
+                Appointment.AppointmentStatus current = parseStatus(status);
+                filter = sources.contains(current) ? List.of(current) : List.of();
+            }
+            rows = filter.isEmpty()
+                ? List.of()
+                : appointmentRepository.findStatusSlotsByFilter(filter, doctorId, date, bulkMaxSize);
+            requested = rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        }
+
+        Map<Long, Object[]> found = new HashMap<>();
+        List<Long> eligible = new ArrayList<>();
+        for (Object[] row : rows) {
+            found.put((Long) row[0], row);
+            if (sources.contains((Appointment.AppointmentStatus) row[1])) {
+                eligible.add((Long) row[0]);
+            }
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int[] counts = transaction.execute(tx -> appointmentRepository.updateStatusIfIn(eligible, target, sources));
+
+        Map<Long, Boolean> updated = new HashMap<>();
+        for (int i = 0; i < eligible.size(); i++) {
+            updated.put(eligible.get(i), counts[i] > 0);
+        }
+        if (updated.containsValue(true)) {
+            collectionVersions.bump(CollectionVersions.APPOINTMENTS);
+        }
+
+        List<BulkStatusResult> results = new ArrayList<>(requested.size());
+        for (Long id : requested) {
+            Object[] row = found.get(id);
+            if (row == null) {
+                results.add(new BulkStatusResult(id, BulkStatusResult.NOT_FOUND, null));
+            } else if (Boolean.TRUE.equals(updated.get(id))) {
+                results.add(new BulkStatusResult(id, BulkStatusResult.UPDATED, target.name()));
+                if (!target.occupiesSlot()) {
+                    slotAvailabilityIndex.release((Long) row[2], (LocalDate) row[3], (LocalTime) row[4]);
+                }
+                eventBroadcaster.publish(statusEvent(id, target, null, row));
+            } else {
+                // Estado de origen no permitido, o la cita cambió entre el SELECT y el UPDATE
+                String current = updated.containsKey(id) ? null : ((Appointment.AppointmentStatus) row[1]).name();
+                results.add(new BulkStatusResult(id, BulkStatusResult.INVALID_STATE, current));
+            }
+        }
+        return results;
+    }
+
+    public boolean isTimeSlotAvailable(LocalDate date, LocalTime time, Long doctorId) {
+        return slotAvailabilityIndex.isAvailable(doctorId, date, time);
+    }
+
+    // Próximos horarios libres de un médico o de una especialidad, en orden cronológico
+    public List<AvailableSlotResponse> findAvailableSlots(Long doctorId, String specialty, LocalDate from, LocalDate to, int limit) {
+        LocalDate today = LocalDate.now();
+        if (from == null || from.isBefore(today)) {
+            from = today;
+        }
+        if (to == null) {
+            to = from.plusDays(30);
+        }
+        if (to.isBefore(from)) {
+            throw new RuntimeException("La fecha final debe ser posterior a la inicial");
+        }
+        if (to.isAfter(from.plusDays(maxSearchDays))) {
+            to = from.plusDays(maxSearchDays);
+        }
+
+        List<UserResponse> doctors = userService.getApprovedDoctors().stream()
+            .filter(d -> doctorId == null || doctorId.equals(d.getId()))
+            .filter(d -> specialty == null || specialty.equalsIgnoreCase(d.getSpecialty()))
+            .collect(Collectors.toList());
+        List<AvailableSlotResponse> result = new ArrayList<>();
+        if (doctors.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        slotAvailabilityIndex.preload(doctors.stream().map(UserResponse::getId).collect(Collectors.toList()), from, to);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (LocalTime time : workingSlots) {
+                if (date.equals(today) && !time.isAfter(now.toLocalTime())) {
+                    continue;
+                }
+                for (UserResponse doctor : doctors) {
+                    if (slotAvailabilityIndex.isAvailable(doctor.getId(), date, time)) {
+                        result.add(new AvailableSlotResponse(date.toString(), time.toString(),
+                            doctor.getId(), doctor.getName(), doctor.getSpecialty()));
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
     }
 
     public List<Appointment> getAppointmentsByStatus(Appointment.AppointmentStatus status) {
         return appointmentRepository.findByStatus(status);
     }
+
+    // Páginas por cursor: se piden limit + 1 filas para saber si hay página siguiente
+    public List<Appointment> getAppointmentsPageByPatient(Long patientId, AppointmentCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        return after == null
+            ? appointmentRepository.findPageByPatientId(patientId, page)
+            : appointmentRepository.findPageByPatientIdAfter(patientId, after.getDate(), after.getTime(), after.getId(), page);
+    }
+
+    public List<Appointment> getAppointmentsPageByDoctor(Long doctorId, AppointmentCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        return after == null
+            ? appointmentRepository.findPageByDoctorId(doctorId, page)
+            : appointmentRepository.findPageByDoctorIdAfter(doctorId, after.getDate(), after.getTime(), after.getId(), page);
+    }
+
+    public List<Appointment> getAppointmentsPageByStatus(Appointment.AppointmentStatus status, AppointmentCursor after, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        return after == null
+            ? appointmentRepository.findPageByStatus(status, page)
+            : appointmentRepository.findPageByStatusAfter(status, after.getDate(), after.getTime(), after.getId(), page);
+    }
+
+    public void streamAppointmentsByPatient(Long patientId, Consumer<Appointment> action) {
+        stream(() -> appointmentRepository.streamByPatientId(patientId), action);
+    }
+
+    public void streamAppointmentsByDoctor(Long doctorId, Consumer<Appointment> action) {
+        stream(() -> appointmentRepository.streamByDoctorId(doctorId), action);
+    }
+
+    public void streamAppointmentsByStatus(Appointment.AppointmentStatus status, Consumer<Appointment> action) {
+        stream(() -> appointmentRepository.streamByStatus(status), action);
+    }
+
+    // Recorre el cursor JDBC dentro de una transacción de solo lectura, soltando cada fila
+    // del contexto de persistencia para que la memoria no crezca con el resultado
+    private void stream(Supplier<Stream<Appointment>> query, Consumer<Appointment> action) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<Appointment> rows = query.get()) {
+                rows.forEach(appointment -> {
+                    action.accept(appointment);
+                    entityManager.detach(appointment);
+                });
+            }
+        });
+    }
+
+    // row: proyección con doctorId, date, time y patientId en las posiciones 2, 3, 4 y 5
+    private static AppointmentEvent statusEvent(Long id, Appointment.AppointmentStatus status, Long version, Object[] row) {
+        return new AppointmentEvent(status.name(), id, status.name(), version, (Long) row[2], (Long) row[5],
+            row[3].toString(), row[4].toString(), null);
+    }
+
+    private static Appointment.AppointmentStatus parseAction(String action) {
+        if (action == null) {
+            throw new RuntimeException("Acción no válida");
+        }
+        switch (action.toLowerCase()) {
+            case "approve":
+                return Appointment.AppointmentStatus.approved;
+            case "reject":
+                return Appointment.AppointmentStatus.rejected;
+            case "cancel":
+                return Appointment.AppointmentStatus.cancelled;
+            default:
+                throw new RuntimeException("Acción no válida: " + action);
+        }
+    }
+
+    private static Appointment.AppointmentStatus parseStatus(String status) {
+        try {
+            return Appointment.AppointmentStatus.valueOf(status.toLowerCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Estado no válido: " + status);
+        }
+    }
+
+    private static boolean isSlotConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String constraint = violation.getConstraintName();
+                return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(SLOT_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
+    private void syncSlot(Appointment appointment) {
+        if (appointment.getDoctorId() == null) {
+            // Cita antigua cuyo médico no se pudo identificar por nombre: no está en el índice
+            return;
+        }
+        if (appointment.getStatus().occupiesSlot()) {
+            slotAvailabilityIndex.markTaken(appointment.getDoctorId(), appointment.getDate(), appointment.getTime());
+        } else {
+            slotAvailabilityIndex.release(appointment.getDoctorId(), appointment.getDate(), appointment.getTime());
+        }
+    }
 }
\ No newline at end of file
@@ -8,21 +8,27 @@ import com.aineurysm.dto.UserResponse;
 import com.aineurysm.model.User;
 import com.aineurysm.repository.UserRepository;
 import com.aineurysm.security.JwtTokenProvider;
+import com.aineurysm.security.PasswordHashingExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
 @Service
 public class AuthService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingExecutor passwordHashingExecutor;
 
     @Autowired
     private JwtTokenProvider tokenProvider;
@@ -30,6 +36,9 @@ public class AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private UserService userService;
+
     public AuthResponse register(RegisterRequest request) {
         // Validar si el usuario ya existe
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -50,8 +59,9 @@ public class AuthService {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingExecutor.encode(request.getPassword()));
         user.setRole(request.getRole() != null ? request.getRole().toLowerCase() : "patient");
+        user.setSpecialty(request.getSpecialty());
         
         // Auto-aprobar pacientes, médicos requieren aprobación manual  
         user.setIsApproved("patient".equals(user.getRole()));
@@ -62,27 +72,19 @@ public class AuthService {
         }
 
         User savedUser = userRepository.save(user);
-        System.out.println("Usuario guardado exitosamente: " + savedUser.getEmail());
+        userService.usersChanged();
+        logger.info("Usuario registrado {} {}", kv("email", savedUser.getEmail()), kv("role", savedUser.getRole()));
 
         // Generar token
-        System.out.println("Generando token para registro: " + savedUser.getEmail());
         String token = tokenProvider.generateToken(savedUser.getEmail());
-        System.out.println("Token generado en registro: " + (token != null ? "SÍ" : "NO"));
 
-        System.out.println("Creando UserResponse para registro...");
         UserResponse userResponse = new UserResponse(savedUser);
-        System.out.println("UserResponse creado en registro");
-
-        System.out.println("Creando AuthResponse para registro...");
-        AuthResponse authResponse = new AuthResponse(
+        return new AuthResponse(
             true,
             "Usuario registrado exitosamente",
             userResponse,
             token
         );
-        System.out.println("AuthResponse creado en registro exitosamente");
-        
-        return authResponse;
     }
 
     public AuthResponse login(LoginRequest request) {
@@ -91,56 +93,40 @@ public class AuthService {
             .orElseThrow(() -> new RuntimeException("Credenciales inválidas"));
 
         // Verificar si está activo
-        System.out.println("User isActive: " + user.getIsActive());
         if (!user.getIsActive()) {
-            System.out.println("FALLO: Usuario no activo");
+            logger.debug("Login rechazado {} {}", kv("email", user.getEmail()), kv("reason", "inactive"));
             throw new RuntimeException("Cuenta desactivada. Contacta al administrador");
         }
 
         // Verificar aprobación para médicos
-        System.out.println("User role: " + user.getRole());
-        System.out.println("User isApproved: " + user.getIsApproved());
         if ("doctor".equals(user.getRole()) && !user.getIsApproved()) {
-            System.out.println("FALLO: Doctor no aprobado");
+            logger.debug("Login rechazado {} {}", kv("email", user.getEmail()), kv("reason", "not_approved"));
             throw new RuntimeException("Tu cuenta de médico está pendiente de aprobación");
         }
 
-        // Verificar contraseña manualmente primero
-        System.out.println("=== DEBUG LOGIN ===");
-        System.out.println("Email encontrado: " + user.getEmail());
-        System.out.println("Password desde request: " + request.getPassword());
-        System.out.println("Password hash en BD: " + user.getPassword());
-        System.out.println("Password matches: " + passwordEncoder.matches(request.getPassword(), user.getPassword()));
-        System.out.println("==================");
-        
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        // Verificar contraseña (una sola vez, en el pool de BCrypt)
+        if (!passwordHashingExecutor.matches(request.getPassword(), user.getPassword())) {
+            logger.debug("Login rechazado {} {}", kv("email", user.getEmail()), kv("reason", "bad_credentials"));
             throw new RuntimeException("Credenciales inválidas");
         }
 
         // Generar token
-        System.out.println("Generando token para: " + user.getEmail());
         String token;
         try {
             token = tokenProvider.generateToken(user.getEmail());
-            System.out.println("Token generado exitosamente: " + (token != null ? "SÍ" : "NO"));
         } catch (Exception e) {
-            System.out.println("ERROR generando token: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generando token {}", kv("email", user.getEmail()), e);
             throw new RuntimeException("Error generando token de autenticación");
         }
         
-        System.out.println("Creando UserResponse...");
         UserResponse userResponse;
         try {
             userResponse = new UserResponse(user);
-            System.out.println("UserResponse creado exitosamente");
         } catch (Exception e) {
-            System.out.println("ERROR creando UserResponse: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error creando UserResponse {}", kv("email", user.getEmail()), e);
             throw new RuntimeException("Error creando respuesta de usuario");
         }
         
-        System.out.println("Creando AuthResponse...");
         AuthResponse authResponse;
         try {
             authResponse = new AuthResponse(
@@ -149,16 +135,25 @@ public class AuthService {
                 userResponse,
                 token
             );
-            System.out.println("AuthResponse creado exitosamente");
         } catch (Exception e) {
-            System.out.println("ERROR creando AuthResponse: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error creando AuthResponse {}", kv("email", user.getEmail()), e);
             throw new RuntimeException("Error creando respuesta de autenticación");
         }
-        
+
+        logger.info("Login correcto {} {}", kv("email", user.getEmail()), kv("role", user.getRole()));
         return authResponse;
     }
 
+    // Token nuevo para una cuenta ya registrada (reintento idempotente del registro)
+    public String issueToken(String email) {
+        User user = userRepository.findByEmail(email)
+            .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        if (!user.getIsActive()) {
+            throw new RuntimeException("Cuenta desactivada. Contacta al administrador");
+        }
+        return tokenProvider.generateToken(user.getEmail());
+    }
+
     public UserResponse getCurrentUser(Authentication authentication) {
         String email = authentication.getName();
         User user = userRepository.findByEmail(email)
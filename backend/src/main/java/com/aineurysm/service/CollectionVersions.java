@@ -0,0 +1,214 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.CollectionVersion;
+import com.aineurysm.repository.CollectionVersionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Contador de versión por colección (citas, pacientes, usuarios) para los ETag de los listados.
+// Cada escritura lo incrementa con su transacción; un GET con If-None-Match igual a la versión
+// actual responde 304 sin consultar la base de datos ni serializar nada.
+// Con app.etags.store = database (valor por defecto) la versión vive en la tabla collection_versions
+// (V10) y la escritura la sube en su propia transacción, al confirmarse. Cada instancia guarda la
+// versión leída durante app.etags.refresh: lo escrito en otra instancia se nota como mucho tras ese
+// tiempo, lo escrito en esta al momento. SQL directo debe subir también collection_versions.
+// Con store = memory los contadores son de este proceso (solo con una única instancia) y lo escrito
+// por SQL directo se nota como mucho tras app.etags.ttl.
+@Component
+public class CollectionVersions {
+
+    public static final String APPOINTMENTS = "appointments";
+    public static final String PATIENTS = "patients";
+    public static final String USERS = "users";
+
+    private static final Logger logger = LoggerFactory.getLogger(CollectionVersions.class);
+
+    @Autowired
+    private CollectionVersionRepository versionRepository;
+
+    private final boolean database;
+
+    private final long ttlInMs;
+
+    private final long refreshInMs;
+
+    private final MeterRegistry meterRegistry;
+
+    // Distinta en cada arranque: los contadores vuelven a cero y no deben coincidir con ETag anteriores
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
+    // store = memory: la versión de cada colección; store = database: la última leída o escrita
+    private final Map<String, AtomicReference<Version>> versions = new ConcurrentHashMap<>();
+
+    public CollectionVersions(MeterRegistry meterRegistry,
+                              @Value("${app.etags.store:database}") String store,
+                              @Value("${app.etags.ttl:30000}") long ttlInMs,
+                              @Value("${app.etags.refresh:1000}") long refreshInMs) {
+        if (!"memory".equals(store) && !"database".equals(store)) {
+            throw new IllegalArgumentException("app.etags.store debe ser memory o database: " + store);
+        }
+        this.meterRegistry = meterRegistry;
+        this.database = "database".equals(store);
+        this.ttlInMs = ttlInMs;
+        this.refreshInMs = refreshInMs;
+    }
+
+    // V10 crea las filas; las bases sin migraciones (H2) las reciben aquí
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissingRows() {
+        if (!database) {
+            return;
+        }
+        for (String collection : List.of(APPOINTMENTS, PATIENTS, USERS)) {
+            if (versionRepository.findVersion(collection) == null) {
+                try {
+                    versionRepository.save(new CollectionVersion(collection, 0L));
+                } catch (DataIntegrityViolationException e) {
+                    // Otra instancia la creó a la vez
+                }
+            }
+        }
+    }
+
+    // Dentro de una transacción, en base de datos se sube justo antes del commit, con la misma conexión:
+    // la versión nueva se ve a la vez que los datos. Las colecciones se suben en orden alfabético para
+    // que dos transacciones que tocan las mismas no se bloqueen en orden inverso. En memoria se sube
+    // tras el commit: antes, un GET concurrente podría leer los datos sin confirmar con la versión
+    // nueva y quedarse con ellos. Si la transacción se deshace la versión se queda como estaba.
+    public void bump(String collection) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (database) {
+                remember(collection, increment(collection));
+            } else {
+                incrementInMemory(collection);
+            }
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        SortedSet<String> pending = (SortedSet<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            pending.add(collection);
+            return;
+        }
+        SortedSet<String> collections = new TreeSet<>(List.of(collection));
+        Map<String, Long> written = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, collections);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (database) {
+                    collections.forEach(name -> written.put(name, increment(name)));
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CollectionVersions.this);
+                if (status != STATUS_COMMITTED) {
+                    return;
+                }
+                if (database) {
+                    written.forEach(CollectionVersions.this::remember);
+                } else {
+                    collections.forEach(CollectionVersions.this::incrementInMemory);
+                }
+            }
+        });
+    }
+
+    // ETag fuerte: colección, versión y todo lo que cambia la respuesta (usuario, filtros, cursor).
+    // Se calcula antes de leer: una escritura posterior sube la versión y el cliente vuelve a pedir.
+    public String etag(String collection, Object... varyBy) {
+        String vary = Stream.of(varyBy).map(part -> Objects.toString(part, "")).collect(Collectors.joining(":"));
+        String version = database ? Long.toString(stored(collection)) : instance + "-" + current(collection).value();
+        return "\"" + collection + "-" + version + "-" + vary + "\"";
+    }
+
+    // true si el cliente ya tiene esta versión: la respuesta queda en 304 y el controlador devuelve null
+    public boolean checkNotModified(WebRequest request, String collection, String etag) {
+        if (!request.checkNotModified(etag)) {
+            return false;
+        }
+        Counter.builder("listings.not_modified")
+                .description("GET de listados respondidos con 304")
+                .tag("collection", collection)
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+
+    // Versión compartida: la guardada si se leyó hace menos de app.etags.refresh; si no, la de la tabla
+    private long stored(String collection) {
+        Version cached = reference(collection).get();
+        if (cached.issuedAt() > 0 && System.currentTimeMillis() - cached.issuedAt() < refreshInMs) {
+            return cached.value();
+        }
+        Long value = versionRepository.findVersion(collection);
+        return remember(collection, value != null ? value : 0);
+    }
+
+    // Nunca retrocede: una lectura que empezó antes de un commit de esta instancia no lo deshace
+    private long remember(String collection, long value) {
+        long now = System.currentTimeMillis();
+        return reference(collection).updateAndGet(cached ->
+            new Version(Math.max(cached.value(), value), now)).value();
+    }
+
+    private long increment(String collection) {
+        if (versionRepository.increment(collection) == 0) {
+            logger.warn("La colección no tiene fila en collection_versions {}", kv("collection", collection));
+            return 0;
+        }
+        Long value = versionRepository.findVersion(collection);
+        return value != null ? value : 0;
+    }
+
+    private Version current(String collection) {
+        AtomicReference<Version> ref = reference(collection);
+        Version version = ref.get();
+        long now = System.currentTimeMillis();
+        if (ttlInMs > 0 && now - version.issuedAt() >= ttlInMs) {
+            ref.compareAndSet(version, new Version(version.value() + 1, now));
+            version = ref.get();
+        }
+        return version;
+    }
+
+    private void incrementInMemory(String collection) {
+        reference(collection).updateAndGet(version -> new Version(version.value() + 1, System.currentTimeMillis()));
+    }
+
+    // En base de datos issuedAt = 0 significa que todavía no se ha leído de la tabla
+    private AtomicReference<Version> reference(String collection) {
+        return versions.computeIfAbsent(collection, key ->
+            new AtomicReference<>(new Version(0, database ? 0 : System.currentTimeMillis())));
+    }
+
+    private record Version(long value, long issuedAt) {}
+}
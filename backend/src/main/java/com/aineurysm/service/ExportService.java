@@ -0,0 +1,295 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.Appointment;
+import com.aineurysm.model.Patient;
+import com.aineurysm.repository.AppointmentRepository;
+import com.aineurysm.repository.PatientRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Exportación de citas y pacientes para informes. Las filas van del cursor JDBC a la salida una a
+// una, sin entidades ni listas intermedias: la memoria usada no depende de cuántas se exporten.
+// CSV con cabecera (compatible con /api/patients/import) o NDJSON con los nombres de campo de la API.
+@Service
+public class ExportService {
+
+    public static final String CSV = "text/csv";
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    public enum Format {
+        csv, ndjson;
+
+        public static Format of(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Formato no válido: " + value + " (csv o ndjson)");
+        }
+
+        public String contentType() {
+            return this == csv ? CSV : NDJSON;
+        }
+
+        // appointments-2024-05-01.csv, o .csv.gz si va comprimido
+        public String fileName(String entity, boolean gzip) {
+            return entity + "-" + LocalDate.now() + "." + name() + (gzip ? ".gz" : "");
+        }
+    }
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.export.fetch-size:2000}")
+    private int fetchSize;
+
+    // Devuelve cuántas filas escribió. out no se cierra: solo se vacía el buffer al terminar.
+    public long exportAppointments(LocalDate from, LocalDate to, Collection<Appointment.AppointmentStatus> statuses,
+                                   Format format, OutputStream out) {
+        return export("appointments", format, extractor ->
+            appointmentRepository.exportRows(from, to, statuses, fetchSize, extractor), out);
+    }
+
+    public long exportPatients(LocalDate from, LocalDate to, Patient.PatientStatus status, Format format, OutputStream out) {
+        return export("patients", format, extractor ->
+            patientRepository.exportRows(from, to, status, fetchSize, extractor), out);
+    }
+
+    // gzip con el nivel más rápido: con el nivel por defecto comprimir cuesta más que leer y
+    // formatear las filas, y el fichero solo sale un poco más grande
+    public static OutputStream gzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, 65536) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    private long export(String entity, Format format, Function<ResultSetExtractor<Long>, Long> query, OutputStream out) {
+        long start = System.nanoTime();
+        // Sin transacción el driver de PostgreSQL ignora el fetch size y trae todas las filas de golpe
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Long rows = readOnly.execute(status -> query.apply(rs -> {
+            try {
+                return write(rs, format, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+
+        Counter.builder("export.rows")
+                .description("Filas escritas por /api/appointments/export y /api/patients/export")
+                .tag("entity", entity)
+                .tag("format", format.name())
+                .register(meterRegistry)
+                .increment(rows);
+        logger.info("Exportación terminada {} {} {} {}", kv("entity", entity), kv("format", format),
+                kv("rows", rows), kv("elapsedMs", (System.nanoTime() - start) / 1_000_000));
+        return rows;
+    }
+
+    private long write(ResultSet rs, Format format, OutputStream out) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columns = metaData.getColumnCount();
+        String[] names = new String[columns];
+        Kind[] kinds = new Kind[columns];
+        for (int i = 0; i < columns; i++) {
+            names[i] = metaData.getColumnLabel(i + 1);
+            kinds[i] = Kind.of(metaData.getColumnType(i + 1));
+        }
+
+        RowWriter writer = format == Format.csv ? new CsvWriter(out, names) : new NdjsonWriter(out, names);
+        long rows = 0;
+        while (rs.next()) {
+            writer.row(rs, kinds);
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    // Los valores se leen como texto: los números se escriben tal cual y las fechas con hora en
+    // formato ISO (2024-05-01T09:30:00), como LocalDateTime.toString() en el resto de la API
+    private enum Kind {
+        NUMBER, TIMESTAMP, TEXT;
+
+        static Kind of(int sqlType) {
+            switch (sqlType) {
+                case Types.BIGINT:
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    return NUMBER;
+                case Types.TIMESTAMP:
+                    return TIMESTAMP;
+                default:
+                    return TEXT;
+            }
+        }
+
+        String read(ResultSet rs, int column) throws SQLException {
+            String value = rs.getString(column);
+            return value != null && this == TIMESTAMP ? value.replace(' ', 'T') : value;
+        }
+    }
+
+    private interface RowWriter {
+        void row(ResultSet rs, Kind[] kinds) throws SQLException, IOException;
+
+        void flush() throws IOException;
+    }
+
+    // RFC 4180: solo se entrecomillan los campos con comas, comillas o saltos de línea; null es un campo vacío
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out, String[] names) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16384);
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                field(names[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs, Kind[] kinds) throws SQLException, IOException {
+            for (int i = 0; i < kinds.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String value = kinds[i].read(rs, i + 1);
+                if (value != null) {
+                    field(kinds[i] == Kind.TEXT ? neutralizeFormula(value) : value);
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        // Un texto que empieza por =, +, -, @, tabulador o retorno de carro lo ejecuta Excel (o LibreOffice)
+        // como fórmula al abrir el fichero: se le antepone un apóstrofo para que quede como texto.
+        // /api/patients/import lo quita al leer. Los números negativos no pasan por aquí
+        private static String neutralizeFormula(String value) {
+            if (value.isEmpty()) {
+                return value;
+            }
+            char first = value.charAt(0);
+            return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r'
+                ? "'" + value
+                : value;
+        }
+
+        private void field(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    // Un objeto JSON por línea escrito con el JsonGenerator de Jackson; los nombres de campo se
+    // codifican una sola vez para toda la exportación
+    private final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final SerializedString[] names;
+
+        NdjsonWriter(OutputStream out, String[] names) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            // El separador por defecto entre objetos es un espacio; aquí cada objeto termina en '\n'
+            this.generator.setRootValueSeparator(null);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.names = new SerializedString[names.length];
+            for (int i = 0; i < names.length; i++) {
+                this.names[i] = new SerializedString(names[i]);
+            }
+        }
+
+        @Override
+        public void row(ResultSet rs, Kind[] kinds) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < kinds.length; i++) {
+                generator.writeFieldName(names[i]);
+                String value = kinds[i].read(rs, i + 1);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (kinds[i] == Kind.NUMBER) {
+                    generator.writeNumber(value);
+                } else {
+                    generator.writeString(value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
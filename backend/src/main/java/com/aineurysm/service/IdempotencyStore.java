@@ -0,0 +1,286 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.IdempotencyRecord;
+import com.aineurysm.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Cabecera Idempotency-Key en los POST que crean algo (citas, registro). La primera petición con
+// una clave se ejecuta y, si termina en 2xx, su respuesta se guarda durante app.idempotency.ttl;
+// los reintentos con la misma clave y el mismo cuerpo reciben esa respuesta sin volver a ejecutar
+// nada. Los errores no se guardan: el reintento vuelve a intentarlo.
+// En memoria por defecto; con app.idempotency.store = database las claves viven en la tabla
+// idempotency_keys (V8) y un reintento que llega a otra instancia también se responde así.
+// Un campo secreto de la respuesta (el JWT del registro) no se guarda: cada reintento recibe uno nuevo.
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String HASH_KEY_LABEL = "idempotency-request-hash";
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean database;
+
+    private final long ttlInMs;
+
+    private final long inProgressTimeoutInMs;
+
+    private final SecretKeySpec hashKey;
+
+    private final Cache<String, Entry> entries;
+
+    public IdempotencyStore(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${app.idempotency.store:memory}") String store,
+                            @Value("${app.idempotency.ttl:86400000}") long ttlInMs,
+                            @Value("${app.idempotency.in-progress-timeout:60000}") long inProgressTimeoutInMs,
+                            @Value("${app.idempotency.max-size:100000}") long maxSize,
+                            @Value("${jwt.secret}") String secret) {
+        if (!"memory".equals(store) && !"database".equals(store)) {
+            throw new IllegalArgumentException("app.idempotency.store debe ser memory o database: " + store);
+        }
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.database = "database".equals(store);
+        this.ttlInMs = ttlInMs;
+        this.inProgressTimeoutInMs = inProgressTimeoutInMs;
+        // HMAC y no un SHA-256 simple: el cuerpo del registro lleva la contraseña
+        this.hashKey = deriveHashKey(secret);
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlInMs))
+                .build();
+    }
+
+    // endpoint y owner acotan la clave: la misma clave de dos usuarios son dos peticiones distintas.
+    // Sin clave, action se ejecuta tal cual.
+    public ResponseEntity<?> execute(String endpoint, Object owner, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        return execute(endpoint, owner, key, request, action, null, null);
+    }
+
+    // secretField se quita de la respuesta antes de guardarla y, en cada reintento, se rellena con
+    // reissue aplicado a lo guardado: la base de datos nunca contiene ese valor
+    public ResponseEntity<?> execute(String endpoint, Object owner, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action,
+                                     String secretField, Function<JsonNode, String> reissue) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            count(endpoint, "invalid");
+            return error(HttpStatus.BAD_REQUEST, HEADER + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+        }
+
+        String id = endpoint + ":" + owner + ":" + key;
+        String requestHash = hash(request);
+        Entry previous = claim(id, requestHash);
+        if (previous != null) {
+            if (!previous.requestHash().equals(requestHash)) {
+                count(endpoint, "mismatch");
+                return error(HttpStatus.UNPROCESSABLE_ENTITY, "Esta " + HEADER + " ya se usó con otra petición");
+            }
+            if (previous.statusCode() == null) {
+                count(endpoint, "in_progress");
+                return error(HttpStatus.CONFLICT, "La petición con esta " + HEADER + " todavía se está procesando");
+            }
+            String body = previous.responseBody();
+            if (secretField != null) {
+                try {
+                    body = withSecret(body, secretField, reissue);
+                } catch (RuntimeException e) {
+                    count(endpoint, "failed");
+                    return error(HttpStatus.BAD_REQUEST, e.getMessage());
+                }
+            }
+            count(endpoint, "replayed");
+            return ResponseEntity.status(previous.statusCode())
+                    .header(REPLAYED_HEADER, "true")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            release(id);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            release(id);
+            count(endpoint, "failed");
+            return response;
+        }
+
+        // Se devuelve la misma cadena que se guarda: el original y los reintentos son idénticos,
+        // salvo secretField, que solo lleva la respuesta original
+        String body;
+        String stored;
+        try {
+            JsonNode tree = objectMapper.valueToTree(response.getBody());
+            body = objectMapper.writeValueAsString(tree);
+            if (secretField != null && tree instanceof ObjectNode object) {
+                object.remove(secretField);
+                stored = objectMapper.writeValueAsString(object);
+            } else {
+                stored = body;
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            release(id);
+            throw new RuntimeException("No se pudo guardar la respuesta", e);
+        }
+        complete(id, requestHash, response.getStatusCode().value(), stored);
+        count(endpoint, "executed");
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.prune-interval:3600000}")
+    public void pruneExpired() {
+        if (!database) {
+            return;
+        }
+        int deleted = recordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Claves de idempotencia purgadas {}", kv("deleted", deleted));
+        }
+    }
+
+    // null si la clave queda reservada para esta petición; si no, lo que ya había con ella
+    private Entry claim(String id, String requestHash) {
+        if (database) {
+            while (true) {
+                LocalDateTime now = LocalDateTime.now();
+                if (recordRepository.claim(id, requestHash, now, now.plus(inProgressTimeoutInMs, ChronoUnit.MILLIS)) > 0) {
+                    return null;
+                }
+                IdempotencyRecord record = recordRepository.findById(id).orElse(null);
+                if (record != null) {
+                    return new Entry(record.getRequestHash(), record.getStatusCode(), record.getResponseBody(), 0);
+                }
+                // La petición original falló y liberó la clave entre las dos consultas: se vuelve a reservar
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Entry pending = new Entry(requestHash, null, null, now);
+        Entry existing = entries.asMap().compute(id, (k, current) ->
+            current == null || (current.statusCode() == null && now - current.claimedAt() >= inProgressTimeoutInMs)
+                ? pending
+                : current);
+        return existing == pending ? null : existing;
+    }
+
+    private void complete(String id, String requestHash, int statusCode, String body) {
+        if (database) {
+            recordRepository.complete(id, statusCode, body, LocalDateTime.now().plus(ttlInMs, ChronoUnit.MILLIS));
+        } else {
+            entries.put(id, new Entry(requestHash, statusCode, body, 0));
+        }
+    }
+
+    private void release(String id) {
+        if (database) {
+            recordRepository.release(id);
+        } else {
+            entries.asMap().computeIfPresent(id, (k, current) -> current.statusCode() == null ? null : current);
+        }
+    }
+
+    private String withSecret(String stored, String secretField, Function<JsonNode, String> reissue) {
+        try {
+            JsonNode tree = objectMapper.readTree(stored);
+            if (tree instanceof ObjectNode object) {
+                object.put(secretField, reissue.apply(object));
+            }
+            return objectMapper.writeValueAsString(tree);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo leer la respuesta guardada", e);
+        }
+    }
+
+    // Clave propia derivada de jwt.secret: la de firmar tokens no se usa para nada más
+    private static SecretKeySpec deriveHashKey(String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(HASH_KEY_LABEL.getBytes(StandardCharsets.UTF_8)), "HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo derivar la clave de idempotencia", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(hashKey);
+            return HexFormat.of().formatHex(mac.doFinal(objectMapper.writeValueAsBytes(request)));
+        } catch (GeneralSecurityException | JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo calcular el hash de la petición", e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", message);
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
+    private void count(String endpoint, String outcome) {
+        Counter.builder("idempotency.requests")
+                .description("Peticiones con Idempotency-Key: executed, replayed, in_progress, mismatch, failed, invalid")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // statusCode null = la petición original sigue en curso desde claimedAt
+    private record Entry(String requestHash, Integer statusCode, String responseBody, long claimedAt) {}
+}
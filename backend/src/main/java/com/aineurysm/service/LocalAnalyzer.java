@@ -0,0 +1,58 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.AnalysisOutcome;
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.model.Patient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Sustituto local del modelo de IA: el resultado sale del SHA-256 del fichero, así que el mismo
+// fichero da siempre el mismo resultado (uno de cada cinco, ABNORMAL). delay simula lo que tarda
+// un análisis real y failure-rate hace fallar una parte de los intentos para probar los reintentos.
+@Component
+@ConditionalOnProperty(name = "app.analysis.analyzer", havingValue = "local", matchIfMissing = true)
+public class LocalAnalyzer implements Analyzer {
+
+    private final long delayInMs;
+
+    private final double failureRate;
+
+    public LocalAnalyzer(@Value("${app.analysis.local.delay:2000}") long delayInMs,
+                         @Value("${app.analysis.local.failure-rate:0}") double failureRate) {
+        this.delayInMs = delayInMs;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public AnalysisOutcome analyze(AnalysisJob job, Path input) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = Files.newInputStream(input)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        byte[] hash = digest.digest();
+
+        Thread.sleep(delayInMs);
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Fallo simulado del analizador local");
+        }
+
+        boolean abnormal = (hash[0] & 0xff) < 52;
+        int confidence = 80 + (hash[1] & 0xff) % 20;
+        return abnormal
+            ? new AnalysisOutcome(Patient.AnalysisResult.ABNORMAL, confidence,
+                "Posible dilatación vascular compatible con aneurisma. Se recomienda revisión por un especialista.")
+            : new AnalysisOutcome(Patient.AnalysisResult.NORMAL, confidence,
+                "No se detectaron anomalías significativas en el tejido cerebral.");
+    }
+}
@@ -0,0 +1,355 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.PatientImportEvent;
+import com.aineurysm.dto.PatientImportRow;
+import com.aineurysm.model.Patient;
+import com.aineurysm.repository.PatientRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Importación masiva de pacientes desde CSV (cabecera con name, email, phone y opcionalmente status)
+// o NDJSON (un objeto por línea). El cuerpo se lee a medida que llega: en memoria solo está el lote
+// en curso. Cada lote es un único INSERT que se confirma por separado, así que si la importación
+// se corta lo escrito se queda, y reenviar el fichero solo añade lo que faltaba (los emails que ya
+// existen se cuentan como duplicados).
+@Service
+public class PatientImportService {
+
+    public static final String CSV = "text/csv";
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientImportService.class);
+
+    private static final int MAX_LENGTH = 255;
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.patients.import.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.patients.import.max-errors:1000}")
+    private int maxErrors;
+
+    // Envía a events cada fila rechazada y el progreso tras cada lote; devuelve el resumen
+    public PatientImportEvent importPatients(InputStream body, boolean csv, Consumer<PatientImportEvent> events) throws IOException {
+        long start = System.nanoTime();
+        PatientImportEvent summary = new PatientImportEvent(PatientImportEvent.SUMMARY, null, null, 0L, 0L, 0L, 0L, false, null);
+        List<Patient> batch = new ArrayList<>(batchSize);
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+
+        RowSource rows = null;
+        try {
+            rows = csv ? new CsvRows(reader) : new NdjsonRows(new BufferedReader(reader));
+        } catch (IllegalArgumentException e) {
+            // Cabecera CSV sin las columnas obligatorias: no se puede leer ninguna fila
+            events.accept(PatientImportEvent.error(null, e.getMessage()));
+            summary.setAborted(true);
+        }
+
+        SourceRow row;
+        while (rows != null && (row = rows.next()) != null) {
+            summary.setProcessed(summary.getProcessed() + 1);
+            String error = row.error() != null ? row.error() : validate(row.values());
+            if (error != null) {
+                summary.setInvalid(summary.getInvalid() + 1);
+                events.accept(PatientImportEvent.error(row.line(), error));
+                if (summary.getInvalid() > maxErrors) {
+                    events.accept(PatientImportEvent.error(null, "Más de " + maxErrors + " filas con errores, importación detenida"));
+                    summary.setAborted(true);
+                    break;
+                }
+                continue;
+            }
+
+            batch.add(toPatient(row.values()));
+            if (batch.size() == batchSize) {
+                write(batch, summary);
+                events.accept(progress(summary));
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, summary);
+            events.accept(progress(summary));
+        }
+
+        summary.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        count("invalid", summary.getInvalid());
+        logger.info("Importación de pacientes terminada {} {} {} {} {} {}", kv("processed", summary.getProcessed()),
+                kv("inserted", summary.getInserted()), kv("duplicates", summary.getDuplicates()),
+                kv("invalid", summary.getInvalid()), kv("aborted", summary.getAborted()), kv("elapsedMs", summary.getElapsedMs()));
+        return summary;
+    }
+
+    private void write(List<Patient> batch, PatientImportEvent summary) {
+        int inserted = patientRepository.insertSkippingExistingEmails(batch);
+        summary.setInserted(summary.getInserted() + inserted);
+        summary.setDuplicates(summary.getDuplicates() + batch.size() - inserted);
+        count("inserted", inserted);
+        count("duplicate", batch.size() - inserted);
+        batch.clear();
+        // Listados (ETag), estadísticas y lecturas agrupadas ven cada lote en cuanto se confirma
+        patientService.patientsImported();
+    }
+
+    private static PatientImportEvent progress(PatientImportEvent summary) {
+        return new PatientImportEvent(PatientImportEvent.PROGRESS, null, null, summary.getProcessed(),
+                summary.getInserted(), summary.getDuplicates(), summary.getInvalid(), null, null);
+    }
+
+    private static String validate(PatientImportRow row) {
+        String name = trim(row.getName());
+        String email = trim(row.getEmail());
+        String phone = trim(row.getPhone());
+        if (name == null) {
+            return "Falta el nombre";
+        }
+        if (email == null) {
+            return "Falta el email";
+        }
+        if (phone == null) {
+            return "Falta el teléfono";
+        }
+        if (name.length() > MAX_LENGTH || email.length() > MAX_LENGTH || phone.length() > MAX_LENGTH) {
+            return "Nombre, email y teléfono no pueden superar " + MAX_LENGTH + " caracteres";
+        }
+        if (!EMAIL.matcher(email).matches()) {
+            return "Email inválido: " + email;
+        }
+        String status = trim(row.getStatus());
+        if (status != null && !"ACTIVE".equalsIgnoreCase(status) && !"INACTIVE".equalsIgnoreCase(status)) {
+            return "Estado no válido: " + status + " (ACTIVE o INACTIVE)";
+        }
+        return null;
+    }
+
+    private static Patient toPatient(PatientImportRow row) {
+        Patient patient = new Patient();
+        patient.setName(trim(row.getName()));
+        patient.setEmail(trim(row.getEmail()));
+        patient.setPhone(trim(row.getPhone()));
+        String status = trim(row.getStatus());
+        patient.setStatus(status == null ? Patient.PatientStatus.ACTIVE
+                : Patient.PatientStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+        return patient;
+    }
+
+    private static String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private void count(String outcome, long amount) {
+        Counter.builder("patients.import.rows")
+                .description("Filas de /api/patients/import: inserted, duplicate, invalid")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    // Fila leída: values o, si no se pudo interpretar, error. line es la línea del fichero donde empieza.
+    private record SourceRow(int line, PatientImportRow values, String error) {}
+
+    private interface RowSource {
+        SourceRow next() throws IOException;
+    }
+
+    private final class NdjsonRows implements RowSource {
+        private final BufferedReader reader;
+        private int line;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public SourceRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new SourceRow(line, objectMapper.readValue(text, PatientImportRow.class), null);
+                } catch (JsonProcessingException e) {
+                    return new SourceRow(line, null, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    // CSV según RFC 4180: comas, comillas dobles con "" como escape y saltos de línea dentro de
+    // comillas. La primera fila es la cabecera; el orden de las columnas es libre y las demás se ignoran.
+    private static final class CsvRows implements RowSource {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int line = 1;
+        private final int nameColumn;
+        private final int emailColumn;
+        private final int phoneColumn;
+        private final int statusColumn;
+
+        CsvRows(Reader reader) throws IOException {
+            this.reader = reader;
+            // Marca BOM que añaden algunas hojas de cálculo al exportar; se salta antes de leer la
+            // cabecera para que un primer campo entre comillas ("name",...) se reconozca como tal
+            if (peek() == '\uFEFF') {
+                read();
+            }
+            List<String> header = nextRecord();
+            List<String> columns = new ArrayList<>();
+            if (header != null) {
+                header.forEach(column -> columns.add(column.trim().toLowerCase(Locale.ROOT)));
+            }
+            nameColumn = columns.indexOf("name");
+            emailColumn = columns.indexOf("email");
+            phoneColumn = columns.indexOf("phone");
+            statusColumn = columns.indexOf("status");
+            if (nameColumn < 0 || emailColumn < 0 || phoneColumn < 0) {
+                throw new IllegalArgumentException("La primera fila del CSV debe ser la cabecera con las columnas name, email y phone");
+            }
+        }
+
+        @Override
+        public SourceRow next() throws IOException {
+            while (true) {
+                int recordLine = line;
+                List<String> fields = nextRecord();
+                if (fields == null) {
+                    return null;
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                return new SourceRow(recordLine, new PatientImportRow(field(fields, nameColumn), field(fields, emailColumn),
+                        field(fields, phoneColumn), field(fields, statusColumn)), null);
+            }
+        }
+
+        // La exportación antepone un apóstrofo a los textos que una hoja de cálculo tomaría por fórmula
+        // ('+34 600...): se quita para que exportar e importar devuelva el mismo valor
+        private static String field(List<String> fields, int column) {
+            String value = column >= 0 && column < fields.size() ? fields.get(column) : null;
+            if (value == null || value.length() < 2 || value.charAt(0) != '\'') {
+                return value;
+            }
+            char first = value.charAt(1);
+            return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r'
+                ? value.substring(1)
+                : value;
+        }
+
+        private List<String> nextRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        // Comillas sin cerrar al final del fichero: se toma lo leído
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read = reader.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+}
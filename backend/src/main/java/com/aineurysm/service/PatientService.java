@@ -1,12 +1,22 @@
 package com.aineurysm.service;
 
+import com.aineurysm.dto.PatientStats;
 import com.aineurysm.model.Patient;
 import com.aineurysm.repository.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 @Service
 public class PatientService {
@@ -14,9 +24,21 @@ public class PatientService {
     @Autowired
     private PatientRepository patientRepository;
 
-    public List<Patient> getAllPatients() {
-        return patientRepository.findAll();
-    }
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    private static final String STATS_KEY = "patients.stats";
+
+    private static final Pattern LIKE_WILDCARDS = Pattern.compile("[%_\\\\]");
+
+    @Value("${app.patients.stats-ttl:30000}")
+    private long statsTtlInMs;
+
+    // Último resultado de la consulta agregada, ajustado en cada alta, cambio o baja
+    private final AtomicReference<StatsSnapshot> statsSnapshot = new AtomicReference<>();
 
     public Optional<Patient> getPatientById(Long id) {
         return patientRepository.findById(id);
@@ -26,23 +48,84 @@ public class PatientService {
         return patientRepository.findByEmail(email);
     }
 
-    public List<Patient> searchPatients(String searchTerm) {
-        if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return getAllPatients();
+    public Page<Patient> getPatientsPage(int page, int size) {
+        return patientRepository.findAll(PageRequest.of(page, size, Sort.by("name", "id")));
+    }
+
+    // Búsqueda sin acentos ni mayúsculas, ordenada por coincidencia de prefijo. Sin total: solo
+    // se sabe si hay página siguiente (un término vacío devuelve el listado, que sí lo lleva)
+    public Slice<Patient> searchPatients(String searchTerm, int page, int size) {
+        String term = LIKE_WILDCARDS.matcher(Patient.normalizeForSearch(searchTerm)).replaceAll("");
+        if (term.isEmpty()) {
+            return getPatientsPage(page, size);
+        }
+        PageRequest pageRequest = PageRequest.of(page, size);
+        return term.length() < 3
+            ? patientRepository.searchByPrefix(term, pageRequest)
+            : patientRepository.searchByText(term, pageRequest);
+    }
+
+    // Rellena search_text en pacientes creados antes de que existiera la columna
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSearchText() {
+        List<Patient> batch;
+        while (!(batch = patientRepository.findBySearchTextIsNull(PageRequest.of(0, 500))).isEmpty()) {
+            batch.forEach(p -> p.setSearchText(p.buildSearchText()));
+            patientRepository.saveAll(batch);
+            patientsChanged();
         }
-        return patientRepository.findByNameOrEmailContaining(searchTerm);
     }
 
     public Patient createPatient(Patient patient) {
-        return patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        patientsChanged();
+        applyToStats(null, saved);
+        return saved;
     }
 
     public Patient updatePatient(Patient patient) {
-        return patientRepository.save(patient);
+        Optional<Patient> current = patient.getId() != null ? patientRepository.findById(patient.getId()) : Optional.empty();
+        if (current.isPresent() && current.get() == patient) {
+            // Entidad gestionada ya modificada: no hay estado anterior, se recalcula en la próxima lectura
+            Patient saved = patientRepository.save(patient);
+            patientsChanged();
+            statsSnapshot.set(null);
+            return saved;
+        }
+
+        Patient before = current.map(this::copyOf).orElse(null);
+        Patient saved = patientRepository.save(patient);
+        patientsChanged();
+        applyToStats(before, saved);
+        return saved;
     }
 
     public void deletePatient(Long id) {
+        Optional<Patient> before = patientRepository.findById(id).map(this::copyOf);
         patientRepository.deleteById(id);
+        patientsChanged();
+        before.ifPresent(p -> applyToStats(p, null));
+    }
+
+    public PatientStats getPatientStats() {
+        StatsSnapshot snapshot = statsSnapshot.get();
+        if (snapshot != null && System.currentTimeMillis() - snapshot.loadedAt() < statsTtlInMs) {
+            return snapshot.stats();
+        }
+
+        // Al caducar la instantánea todas las peticiones del momento fallan a la vez: una sola
+        // ejecuta la consulta agregada y el resto recibe su resultado
+        return singleFlight.execute(STATS_KEY, 0, () -> {
+            PatientRepository.StatsView view = patientRepository.aggregateStats();
+            PatientStats stats = new PatientStats(
+                view.getTotalPatients(),
+                view.getActivePatients(),
+                view.getPendingAnalyses(),
+                view.getUpcomingAppointments()
+            );
+            statsSnapshot.set(new StatsSnapshot(stats, System.currentTimeMillis()));
+            return stats;
+        });
     }
 
     public Long countActivePatients() {
@@ -56,4 +139,39 @@ public class PatientService {
     public Long countUpcomingAppointments() {
         return patientRepository.countUpcomingAppointments();
     }
-}
\ No newline at end of file
+
+    // Tras cada lote de /api/patients/import: las estadísticas se recalculan en la próxima lectura
+    public void patientsImported() {
+        statsSnapshot.set(null);
+        patientsChanged();
+    }
+
+    // Tras cada cambio de la cola de análisis: AnalysisQueue actualiza last_analysis_result y
+    // total_analyses con UPDATE, sin pasar por las entidades
+    public void analysesChanged() {
+        statsSnapshot.set(null);
+        patientsChanged();
+    }
+
+    private void patientsChanged() {
+        // Antes de subir la versión: un GET que ya vea la versión nueva no puede unirse a una lectura anterior
+        singleFlight.invalidate(STATS_KEY);
+        collectionVersions.bump(CollectionVersions.PATIENTS);
+    }
+
+    private void applyToStats(Patient before, Patient after) {
+        statsSnapshot.updateAndGet(snapshot -> snapshot == null ? null
+            : new StatsSnapshot(snapshot.stats().apply(before, after), snapshot.loadedAt()));
+    }
+
+    // Copia los campos que cuentan en las estadísticas antes de que save() los modifique
+    private Patient copyOf(Patient patient) {
+        Patient copy = new Patient();
+        copy.setStatus(patient.getStatus());
+        copy.setLastAnalysisResult(patient.getLastAnalysisResult());
+        copy.setNextAppointment(patient.getNextAppointment());
+        return copy;
+    }
+
+    private record StatsSnapshot(PatientStats stats, long loadedAt) {}
+}
@@ -0,0 +1,117 @@
+package com.aineurysm.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Agrupa lecturas idénticas simultáneas: la primera llamada con una clave ejecuta la consulta y
+// las que llegan mientras tanto esperan y reciben el mismo resultado. Con freshnessInMs > 0 el
+// resultado se sigue entregando durante ese tiempo sin volver a consultar.
+// Un fallo se entrega a quienes esperaban esa ejecución pero no se guarda: la siguiente llamada
+// vuelve a consultar. Las escrituras llaman a invalidate para que nadie se una a una lectura
+// empezada antes de ellas.
+@Component
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final long waitTimeoutInMs;
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${app.single-flight.wait-timeout:10000}") long waitTimeoutInMs) {
+        this.meterRegistry = meterRegistry;
+        this.waitTimeoutInMs = waitTimeoutInMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, long freshnessInMs, Supplier<T> loader) {
+        while (true) {
+            Flight current = flights.get(key);
+            if (current != null) {
+                if (!current.future.isDone()) {
+                    count(key, "shared");
+                    return (T) await(key, current, loader);
+                }
+                if (current.completedAt > 0 && System.currentTimeMillis() - current.completedAt < freshnessInMs) {
+                    count(key, "fresh");
+                    return (T) current.future.join();
+                }
+            }
+
+            Flight mine = new Flight();
+            boolean leader = current == null
+                ? flights.putIfAbsent(key, mine) == null
+                : flights.replace(key, current, mine);
+            if (!leader) {
+                // Otra llamada empezó la consulta a la vez: se vuelve a mirar y se espera la suya
+                continue;
+            }
+
+            count(key, "executed");
+            T value;
+            try {
+                value = loader.get();
+            } catch (RuntimeException | Error e) {
+                flights.remove(key, mine);
+                count(key, "failed");
+                mine.future.completeExceptionally(e);
+                throw e;
+            }
+            mine.completedAt = System.currentTimeMillis();
+            mine.future.complete(value);
+            if (freshnessInMs <= 0) {
+                flights.remove(key, mine);
+            }
+            return value;
+        }
+    }
+
+    public void invalidate(String key) {
+        flights.remove(key);
+    }
+
+    // Si la consulta compartida tarda más que wait-timeout, quien espera la ejecuta por su cuenta
+    private Object await(String key, Flight flight, Supplier<?> loader) {
+        try {
+            return flight.future.get(waitTimeoutInMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            count(key, "timeout");
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Consulta interrumpida");
+        }
+    }
+
+    private void count(String key, String outcome) {
+        Counter.builder("single.flight.calls")
+                .description("Lecturas agrupadas por clave: executed, shared, fresh, failed, timeout")
+                .tag("key", key)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private volatile long completedAt;
+    }
+}
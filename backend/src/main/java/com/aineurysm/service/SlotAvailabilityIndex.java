@@ -0,0 +1,189 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.Appointment;
+import com.aineurysm.repository.AppointmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Índice en memoria de horarios ocupados por médico y día.
+// Cada día es un bitset de bloques de slot-minutes; reservar un bloque es un CAS
+// sobre una palabra del bitset, así que dos médicos nunca compiten entre sí.
+// Es de esta instancia: entre réplicas decide la base de datos, con un bloqueo consultivo por
+// horario al reservar y el índice unique parcial como garantía final.
+@Component
+public class SlotAvailabilityIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private final int slotMinutes;
+
+    private final int slotsPerDay;
+
+    private final Cache<DayKey, DaySlots> days;
+
+    public SlotAvailabilityIndex(@Value("${app.appointments.slot-minutes:60}") int slotMinutes,
+                                 @Value("${app.appointments.availability-cache.max-size:50000}") long maxSize,
+                                 @Value("${app.appointments.availability-cache.ttl:600000}") long ttlInMs) {
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalArgumentException("slot-minutes debe dividir exactamente un día: " + slotMinutes);
+        }
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+        this.days = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlInMs))
+                .build();
+    }
+
+    // Precarga los días con citas activas desde hoy en adelante
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<Object[]> booked = appointmentRepository.findBookedSlotsFrom(LocalDate.now(), Appointment.AppointmentStatus.activeStatuses());
+        ConcurrentMap<DayKey, DaySlots> map = days.asMap();
+        for (Object[] row : booked) {
+            DayKey key = new DayKey((Long) row[0], (LocalDate) row[1]);
+            map.computeIfAbsent(key, k -> new DaySlots(slotsPerDay)).mark(slotOf((LocalTime) row[2]));
+        }
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public boolean isAligned(LocalTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0 && minuteOfDay(time) % slotMinutes == 0;
+    }
+
+    public boolean isAvailable(Long doctorId, LocalDate date, LocalTime time) {
+        return !day(doctorId, date).isTaken(slotOf(time));
+    }
+
+    // Comprueba y reserva el bloque en una sola operación atómica
+    public boolean tryClaim(Long doctorId, LocalDate date, LocalTime time) {
+        return day(doctorId, date).claim(slotOf(time));
+    }
+
+    public void markTaken(Long doctorId, LocalDate date, LocalTime time) {
+        day(doctorId, date).mark(slotOf(time));
+    }
+
+    public void release(Long doctorId, LocalDate date, LocalTime time) {
+        if (doctorId == null) {
+            return;
+        }
+        DaySlots slots = days.getIfPresent(new DayKey(doctorId, date));
+        if (slots != null) {
+            slots.release(slotOf(time));
+        }
+    }
+
+    // Carga en una sola consulta los días del rango que todavía no están en el índice
+    public void preload(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        Map<DayKey, DaySlots> missing = new HashMap<>();
+        for (Long doctorId : doctorIds) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                DayKey key = new DayKey(doctorId, date);
+                if (days.getIfPresent(key) == null) {
+                    missing.put(key, new DaySlots(slotsPerDay));
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> booked = appointmentRepository.findBookedSlotsBetween(doctorIds, from, to, Appointment.AppointmentStatus.activeStatuses());
+        for (Object[] row : booked) {
+            DaySlots slots = missing.get(new DayKey((Long) row[0], (LocalDate) row[1]));
+            if (slots != null) {
+                slots.mark(slotOf((LocalTime) row[2]));
+            }
+        }
+        ConcurrentMap<DayKey, DaySlots> map = days.asMap();
+        missing.forEach(map::putIfAbsent);
+    }
+
+    public void invalidateAll() {
+        days.invalidateAll();
+    }
+
+    private DaySlots day(Long doctorId, LocalDate date) {
+        DayKey key = new DayKey(doctorId, date);
+        DaySlots slots = days.getIfPresent(key);
+        if (slots != null) {
+            return slots;
+        }
+
+        // La consulta se hace fuera del mapa para no bloquear otras claves mientras carga
+        DaySlots loaded = new DaySlots(slotsPerDay);
+        for (LocalTime booked : appointmentRepository.findBookedTimes(doctorId, date, Appointment.AppointmentStatus.activeStatuses())) {
+            loaded.mark(slotOf(booked));
+        }
+        DaySlots existing = days.asMap().putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private int slotOf(LocalTime time) {
+        return minuteOfDay(time) / slotMinutes;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private record DayKey(long doctorId, LocalDate date) {}
+
+    static final class DaySlots {
+        private final AtomicLongArray words;
+
+        DaySlots(int slots) {
+            this.words = new AtomicLongArray((slots + 63) >>> 6);
+        }
+
+        boolean isTaken(int slot) {
+            return (words.get(slot >>> 6) & (1L << slot)) != 0;
+        }
+
+        boolean claim(int slot) {
+            int index = slot >>> 6;
+            long bit = 1L << slot;
+            while (true) {
+                long current = words.get(index);
+                if ((current & bit) != 0) {
+                    return false;
+                }
+                if (words.compareAndSet(index, current, current | bit)) {
+                    return true;
+                }
+            }
+        }
+
+        void mark(int slot) {
+            long bit = 1L << slot;
+            words.getAndUpdate(slot >>> 6, current -> current | bit);
+        }
+
+        void release(int slot) {
+            long bit = 1L << slot;
+            words.getAndUpdate(slot >>> 6, current -> current & ~bit);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.SyncBatch;
+import com.aineurysm.dto.SyncToken;
+import com.aineurysm.model.Appointment;
+import com.aineurysm.model.Patient;
+import com.aineurysm.model.SyncTombstone;
+import com.aineurysm.repository.AppointmentRepository;
+import com.aineurysm.repository.PatientRepository;
+import com.aineurysm.repository.SyncTombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+// Sincronización incremental de citas y pacientes a partir de un token (updatedAt, id).
+// Los cambios se leen por updated_at y los borrados de sync_tombstones (trigger de V6).
+@Service
+public class SyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncService.class);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private SyncTombstoneRepository tombstoneRepository;
+
+    // updated_at se fija antes del commit: una transacción que confirma tarde puede dejar una fila
+    // con marca anterior a otra ya entregada. Solo se entregan cambios con esta antigüedad mínima.
+    @Value("${app.sync.settle-lag:5000}")
+    private long settleLagInMs;
+
+    @Value("${app.sync.tombstone-retention:2592000000}")
+    private long tombstoneRetentionInMs;
+
+    // Token para acompañar un listado completo: lo cambiado después llegará con ?since=
+    public SyncToken currentToken() {
+        return SyncToken.at(horizon());
+    }
+
+    // Los borrados más antiguos que la retención ya se purgaron: el cliente debe recargar todo
+    public boolean isExpired(SyncToken since) {
+        return since.getUpdatedAt().isBefore(LocalDateTime.now().minus(tombstoneRetentionInMs, ChronoUnit.MILLIS));
+    }
+
+    // doctorId o patientId limitan el lote a las citas de ese médico o paciente; ambos null = todas
+    public SyncBatch<Appointment> getAppointmentChanges(SyncToken since, Long doctorId, Long patientId, int limit) {
+        LocalDateTime horizon = horizon();
+        if (doctorId != null) {
+            return batch(since, limit, horizon,
+                page -> appointmentRepository.findChangedSinceByDoctorId(since.getUpdatedAt(), since.getId(), horizon, doctorId, page),
+                Appointment::getUpdatedAt, Appointment::getId,
+                (from, to) -> tombstoneRepository.findDeletedIdsByDoctorId(SyncTombstone.APPOINTMENT, from, to, doctorId));
+        }
+        if (patientId != null) {
+            return batch(since, limit, horizon,
+                page -> appointmentRepository.findChangedSinceByPatientId(since.getUpdatedAt(), since.getId(), horizon, patientId, page),
+                Appointment::getUpdatedAt, Appointment::getId,
+                (from, to) -> tombstoneRepository.findDeletedIdsByPatientId(SyncTombstone.APPOINTMENT, from, to, patientId));
+        }
+        return batch(since, limit, horizon,
+            page -> appointmentRepository.findChangedSince(since.getUpdatedAt(), since.getId(), horizon, page),
+            Appointment::getUpdatedAt, Appointment::getId,
+            (from, to) -> tombstoneRepository.findDeletedIds(SyncTombstone.APPOINTMENT, from, to));
+    }
+
+    public SyncBatch<Patient> getPatientChanges(SyncToken since, int limit) {
+        LocalDateTime horizon = horizon();
+        return batch(since, limit, horizon,
+            page -> patientRepository.findChangedSince(since.getUpdatedAt(), since.getId(), horizon, page),
+            Patient::getUpdatedAt, Patient::getId,
+            (from, to) -> tombstoneRepository.findDeletedIds(SyncTombstone.PATIENT, from, to));
+    }
+
+    @Scheduled(fixedDelayString = "${app.sync.prune-interval:3600000}")
+    public void pruneTombstones() {
+        int deleted = tombstoneRepository.deleteOlderThan(LocalDateTime.now().minus(tombstoneRetentionInMs, ChronoUnit.MILLIS));
+        if (deleted > 0) {
+            logger.info("Lápidas de sincronización purgadas {}", kv("deleted", deleted));
+        }
+    }
+
+    // Hasta limit cambios en orden (updatedAt, id) y los borrados del mismo tramo de tiempo.
+    // Si el lote se llena, el tramo termina en el último cambio devuelto y el token apunta a él.
+    private <T> SyncBatch<T> batch(SyncToken since, int limit, LocalDateTime horizon,
+                                   Function<Pageable, List<T>> changes,
+                                   Function<T, LocalDateTime> updatedAt,
+                                   Function<T, Long> id,
+                                   BiFunction<LocalDateTime, LocalDateTime, List<Long>> deletedIds) {
+        List<T> rows = changes.apply(PageRequest.of(0, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<T> page = hasMore ? rows.subList(0, limit) : rows;
+
+        SyncToken next;
+        if (hasMore) {
+            T last = page.get(page.size() - 1);
+            next = new SyncToken(updatedAt.apply(last), id.apply(last));
+        } else if (horizon.isAfter(since.getUpdatedAt())) {
+            next = SyncToken.at(horizon);
+        } else {
+            // El cliente ya está al día (token más nuevo que el horizonte)
+            next = since;
+        }
+
+        List<Long> deleted = next.getUpdatedAt().isAfter(since.getUpdatedAt())
+            ? deletedIds.apply(since.getUpdatedAt(), next.getUpdatedAt())
+            : List.of();
+        return new SyncBatch<>(page, deleted, next.encode(), hasMore);
+    }
+
+    // Truncado a microsegundos, la precisión de timestamp(6), para que el token coincida con la columna
+    private LocalDateTime horizon() {
+        return LocalDateTime.now().minus(settleLagInMs, ChronoUnit.MILLIS).truncatedTo(ChronoUnit.MICROS);
+    }
+}
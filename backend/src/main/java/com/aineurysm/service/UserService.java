@@ -4,7 +4,9 @@ package com.aineurysm.service;
 import com.aineurysm.dto.UserResponse;
 import com.aineurysm.model.User;
 import com.aineurysm.repository.UserRepository;
+import com.aineurysm.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,20 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private CollectionVersions collectionVersions;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    private static final String APPROVED_DOCTORS_KEY = "users.approved-doctors";
+
+    @Value("${app.users.approved-doctors-freshness:1000}")
+    private long approvedDoctorsFreshnessInMs;
+
     public List<UserResponse> getAllUsers() {
         List<User> users = userRepository.findAll();
         return users.stream()
@@ -48,6 +64,8 @@ public class UserService {
         
         user.setApproved(true);
         userRepository.save(user);
+        usersChanged();
+        principalCache.invalidate(user.getEmail());
     }
 
     public void toggleUserStatus(Long id) {
@@ -56,6 +74,8 @@ public class UserService {
         
         user.setActive(!user.isActive());
         userRepository.save(user);
+        usersChanged();
+        principalCache.invalidate(user.getEmail());
     }
 
     public void deleteUser(Long id) {
@@ -63,6 +83,10 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
         
         userRepository.delete(user);
+        // Las citas del usuario quedan con doctor_id / patient_id a NULL (ON DELETE SET NULL)
+        usersChanged();
+        collectionVersions.bump(CollectionVersions.APPOINTMENTS);
+        principalCache.invalidate(user.getEmail());
     }
 
     public UserResponse getCurrentUserProfile() {
@@ -75,11 +99,44 @@ public class UserService {
         return convertToUserResponse(user);
     }
 
+    // Muchas pantallas la piden a la vez al abrir: las llamadas simultáneas comparten una consulta.
+    // La lista es compartida entre llamadas, por eso se devuelve inmodificable
     public List<UserResponse> getApprovedDoctors() {
-        List<User> approvedDoctors = userRepository.findByRoleAndIsApprovedAndIsActive("doctor", true, true);
-        return approvedDoctors.stream()
+        return singleFlight.execute(APPROVED_DOCTORS_KEY, approvedDoctorsFreshnessInMs, () ->
+            userRepository.findByRoleAndIsApprovedAndIsActive("doctor", true, true).stream()
                 .map(this::convertToUserResponse)
-                .collect(Collectors.toList());
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    // Tras cualquier alta, cambio o baja de usuario, también los registros de AuthService
+    public void usersChanged() {
+        // Antes de subir la versión: un GET que ya vea la versión nueva no puede unirse a una lectura anterior
+        singleFlight.invalidate(APPROVED_DOCTORS_KEY);
+        collectionVersions.bump(CollectionVersions.USERS);
+    }
+
+    // Médico al que se le puede reservar una cita: existe, está aprobado y activo
+    public UserResponse getBookableDoctor(Long id) {
+        User user = userRepository.findById(id)
+                .filter(u -> "doctor".equals(u.getRole()))
+                .orElseThrow(() -> new RuntimeException("Médico no encontrado"));
+
+        if (!user.isApproved() || !user.isActive()) {
+            throw new RuntimeException("El médico no está disponible para citas");
+        }
+        return convertToUserResponse(user);
+    }
+
+    // Para los clientes que todavía envían solo el nombre del médico; un nombre repetido es ambiguo
+    public Long findDoctorIdByName(String name) {
+        List<User> doctors = userRepository.findByRoleAndName("doctor", name);
+        if (doctors.isEmpty()) {
+            throw new RuntimeException("Médico no encontrado");
+        }
+        if (doctors.size() > 1) {
+            throw new RuntimeException("Hay varios médicos con el nombre " + name + ", indica doctorId");
+        }
+        return doctors.get(0).getId();
     }
 
     private UserResponse convertToUserResponse(User user) {
@@ -0,0 +1,12 @@
+-- Versión de cada colección (appointments, patients, users) para los ETag de los listados, compartida
+-- entre instancias cuando app.etags.store = database: una escritura en cualquier instancia la sube y
+-- un GET en otra ya no responde 304 con la versión anterior. Con store = memory la tabla queda sin usar.
+
+CREATE TABLE IF NOT EXISTS collection_versions (
+    collection varchar(50) PRIMARY KEY,
+    version bigint NOT NULL DEFAULT 0
+);
+
+INSERT INTO collection_versions (collection, version)
+VALUES ('appointments', 0), ('patients', 0), ('users', 0)
+ON CONFLICT (collection) DO NOTHING;
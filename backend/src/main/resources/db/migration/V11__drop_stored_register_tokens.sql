@@ -0,0 +1,4 @@
+-- Las respuestas de /api/auth/register guardadas antes incluían el JWT en claro. Ahora se guardan sin
+-- él; las anteriores se borran. Un reintento con una de esas claves vuelve a ejecutar el registro.
+
+DELETE FROM idempotency_keys WHERE id LIKE 'register:%';
@@ -0,0 +1,15 @@
+-- Columnas que las entidades añadieron después del esquema inicial (V1): users.specialty (médicos),
+-- patients.search_text (búsqueda, V2 la indexa) y appointments.version (bloqueo optimista).
+-- Las bases marcadas como V1 por baseline-on-migrate las reciben aquí, antes de V2. IF NOT EXISTS
+-- porque las que siguieron con ddl-auto=update tras esos cambios ya las tienen.
+
+ALTER TABLE users
+    ADD COLUMN IF NOT EXISTS specialty varchar(255);
+
+-- Sin valor: PatientService.backfillSearchText la rellena al arrancar
+ALTER TABLE patients
+    ADD COLUMN IF NOT EXISTS search_text varchar(600);
+
+-- Con DEFAULT constante PostgreSQL no reescribe la tabla
+ALTER TABLE appointments
+    ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
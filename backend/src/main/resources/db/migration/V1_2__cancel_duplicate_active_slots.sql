@@ -0,0 +1,37 @@
+-- Antes del índice único de V2: las reservas se hacían comprobando y luego insertando, así que una
+-- base antigua puede tener dos citas activas en el mismo horario del mismo médico. Con ellas el
+-- CREATE UNIQUE INDEX falla y la aplicación no arranca. Se conserva la más antigua (id menor) de cada
+-- horario y las demás se cancelan; cada una queda en el log de Flyway como aviso ("DB: ...") con la
+-- cita que se conservó, para avisar a esos pacientes.
+
+DO $$
+DECLARE
+    duplicate record;
+    cancelled integer := 0;
+BEGIN
+    FOR duplicate IN
+        SELECT id, kept_id, doctor_name, appointment_date, appointment_time, patient_email
+        FROM (
+            SELECT a.id, a.doctor_name, a.appointment_date, a.appointment_time, a.patient_email,
+                   first_value(a.id) OVER slot AS kept_id,
+                   row_number() OVER slot AS position
+            FROM appointments a
+            WHERE a.status IN ('pending', 'approved', 'completed', 'reschedule_requested')
+            WINDOW slot AS (PARTITION BY a.doctor_name, a.appointment_date, a.appointment_time ORDER BY a.id)
+        ) ranked
+        WHERE position > 1
+        ORDER BY id
+    LOOP
+        UPDATE appointments
+        SET status = 'cancelled', updated_at = now(), version = version + 1
+        WHERE id = duplicate.id;
+        cancelled := cancelled + 1;
+        RAISE WARNING 'Cita % cancelada por duplicar el horario de la cita %: %, % %, paciente %',
+            duplicate.id, duplicate.kept_id, duplicate.doctor_name, duplicate.appointment_date,
+            duplicate.appointment_time, duplicate.patient_email;
+    END LOOP;
+
+    IF cancelled > 0 THEN
+        RAISE WARNING 'Citas duplicadas canceladas antes del índice único: %', cancelled;
+    END IF;
+END $$;
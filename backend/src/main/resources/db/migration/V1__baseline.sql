@@ -0,0 +1,48 @@
+-- Esquema inicial: las tablas tal como las generaba hibernate ddl-auto=update con las entidades originales.
+-- Las bases de datos ya existentes se marcan como versión 1 (baseline-on-migrate) y no ejecutan este script,
+-- así que no puede llevar nada que esas bases no tengan: las columnas posteriores van en V1_1.
+
+CREATE TABLE users (
+    id bigserial NOT NULL,
+    email varchar(255) NOT NULL UNIQUE,
+    password_hash varchar(255) NOT NULL,
+    name varchar(255) NOT NULL,
+    role varchar(255) NOT NULL,
+    phone varchar(255),
+    date_of_birth date,
+    gender varchar(255),
+    is_active boolean,
+    is_approved boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE patients (
+    id bigserial NOT NULL,
+    name varchar(255) NOT NULL,
+    email varchar(255) NOT NULL UNIQUE,
+    phone varchar(255) NOT NULL,
+    last_visit timestamp(6),
+    next_appointment timestamp(6),
+    status varchar(255) NOT NULL CHECK (status IN ('ACTIVE', 'INACTIVE')),
+    total_analyses integer,
+    last_analysis_result varchar(255) CHECK (last_analysis_result IN ('NORMAL', 'ABNORMAL', 'PENDING')),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE appointments (
+    id bigserial NOT NULL,
+    appointment_date date NOT NULL,
+    appointment_time time(6) NOT NULL,
+    doctor_name varchar(255) NOT NULL,
+    doctor_specialty varchar(255),
+    patient_name varchar(255),
+    patient_email varchar(255),
+    status varchar(255) NOT NULL CHECK (status IN ('pending', 'approved', 'rejected', 'cancelled', 'completed', 'reschedule_requested')),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    PRIMARY KEY (id)
+);
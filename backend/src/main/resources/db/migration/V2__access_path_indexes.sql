@@ -0,0 +1,56 @@
+-- Índices para los accesos de AppointmentRepository, PatientRepository y UserRepository.
+-- Sustituye a schema.sql. CONCURRENTLY y fuera de transacción, como V5: en una base anterior a
+-- schema.sql las tablas ya tienen datos y un CREATE INDEX normal bloquearía las escrituras durante
+-- toda la construcción. Cada índice se borra antes de crearlo, por si un intento anterior lo dejó
+-- INVALID; en las bases creadas con schema.sql eso los reconstruye sin bloquear.
+-- V1_2 ya canceló las citas que duplicaban un horario, así que el índice único puede construirse.
+
+-- Garantía final contra dobles reservas: un único horario activo por médico, fecha y hora.
+-- También sirve findBookedTimes / findBookedSlotsBetween (médico + fecha, solo estados activos).
+DROP INDEX CONCURRENTLY IF EXISTS uq_appointments_active_slot;
+CREATE UNIQUE INDEX CONCURRENTLY uq_appointments_active_slot
+    ON appointments (doctor_name, appointment_date, appointment_time)
+    WHERE status IN ('pending', 'approved', 'completed', 'reschedule_requested');
+
+-- Citas del paciente: findByPatientEmailOrderByDateDesc, findPageByPatientEmail[After], streamByPatientEmail
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_patient_date;
+CREATE INDEX CONCURRENTLY idx_appointments_patient_date
+    ON appointments (patient_email, appointment_date DESC, appointment_time DESC, id DESC);
+
+-- Agenda del médico: findByDoctorName, findPageByDoctorName[After], streamByDoctorName.
+-- INCLUDE status para que el filtro por estado de la disponibilidad no tenga que ir a la tabla.
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_doctor_date;
+CREATE INDEX CONCURRENTLY idx_appointments_doctor_date
+    ON appointments (doctor_name, appointment_date, appointment_time, id) INCLUDE (status);
+
+-- Colas por estado: findByStatus, findPageByStatus[After], streamByStatus, operaciones masivas con filtro
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_status_date;
+CREATE INDEX CONCURRENTLY idx_appointments_status_date
+    ON appointments (status, appointment_date, appointment_time, id);
+
+-- Precarga del índice de disponibilidad (findBookedSlotsFrom): solo citas activas y sin leer la tabla
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_active_from;
+CREATE INDEX CONCURRENTLY idx_appointments_active_from
+    ON appointments (appointment_date) INCLUDE (doctor_name, appointment_time)
+    WHERE status IN ('pending', 'approved', 'completed', 'reschedule_requested');
+
+-- Médicos aprobados / pendientes: findByRoleAndIsApproved[AndIsActive]
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_role_approved_active;
+CREATE INDEX CONCURRENTLY idx_users_role_approved_active
+    ON users (role, is_approved, is_active);
+
+-- Listado paginado de pacientes ordenado por nombre
+DROP INDEX CONCURRENTLY IF EXISTS idx_patients_name;
+CREATE INDEX CONCURRENTLY idx_patients_name
+    ON patients (name, id);
+
+-- Búsqueda de pacientes: trigramas para coincidencias parciales y text_pattern_ops para prefijos cortos
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_patients_search_trgm;
+CREATE INDEX CONCURRENTLY idx_patients_search_trgm
+    ON patients USING gin (search_text gin_trgm_ops);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_patients_search_prefix;
+CREATE INDEX CONCURRENTLY idx_patients_search_prefix
+    ON patients (search_text text_pattern_ops);
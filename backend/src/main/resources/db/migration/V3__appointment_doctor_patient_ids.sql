@@ -0,0 +1,38 @@
+-- Las citas pasan a referenciar al médico y al paciente por id (users.id) en lugar de por nombre y email.
+-- doctor_name, doctor_specialty, patient_name y patient_email se conservan como copia para mostrar.
+-- Todo lo de este script es instantáneo: columnas nullable sin default y claves foráneas NOT VALID
+-- (no recorren la tabla). El relleno lo hace V4 por lotes y V4 valida las claves al terminar.
+
+ALTER TABLE appointments
+    ADD COLUMN IF NOT EXISTS doctor_id bigint,
+    ADD COLUMN IF NOT EXISTS patient_id bigint;
+
+-- ON DELETE SET NULL: borrar un usuario no debe fallar ni borrar el historial de citas
+ALTER TABLE appointments
+    ADD CONSTRAINT fk_appointments_doctor FOREIGN KEY (doctor_id) REFERENCES users (id) ON DELETE SET NULL NOT VALID;
+
+ALTER TABLE appointments
+    ADD CONSTRAINT fk_appointments_patient FOREIGN KEY (patient_id) REFERENCES users (id) ON DELETE SET NULL NOT VALID;
+
+-- Búsqueda de médicos por nombre para el relleno y para los clientes que todavía envían doctorName
+CREATE INDEX IF NOT EXISTS idx_users_role_name
+    ON users (role, name);
+
+-- Mientras haya instancias de la versión anterior escribiendo citas sin ids, el trigger los completa
+-- a partir del nombre (solo si un único médico lo tiene) y del email. Con ids ya informados no hace nada.
+CREATE OR REPLACE FUNCTION appointments_fill_ids() RETURNS trigger AS $$
+BEGIN
+    IF NEW.doctor_id IS NULL THEN
+        SELECT CASE WHEN count(*) = 1 THEN min(u.id) END INTO NEW.doctor_id
+        FROM users u WHERE u.role = 'doctor' AND u.name = NEW.doctor_name;
+    END IF;
+    IF NEW.patient_id IS NULL AND NEW.patient_email IS NOT NULL THEN
+        SELECT u.id INTO NEW.patient_id FROM users u WHERE u.email = NEW.patient_email;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_appointments_fill_ids
+    BEFORE INSERT ON appointments
+    FOR EACH ROW EXECUTE FUNCTION appointments_fill_ids();
@@ -0,0 +1,41 @@
+-- Índices sobre doctor_id / patient_id que sustituyen a los de doctor_name / patient_email (V2).
+-- CONCURRENTLY para no bloquear escrituras mientras se construyen; Flyway ejecuta este script
+-- fuera de transacción. Las claves bigint dejan índices más estrechos que las cadenas.
+-- Un CREATE INDEX CONCURRENTLY interrumpido deja el índice INVALID, así que cada índice se borra
+-- antes de crearlo: reintentar el script tras un fallo lo reconstruye en lugar de saltarlo.
+
+-- Garantía final contra dobles reservas, ahora por médico y no por nombre (dos médicos con el mismo
+-- nombre ya no se bloquean entre sí). También sirve findBookedTimes / findBookedSlotsBetween.
+DROP INDEX CONCURRENTLY IF EXISTS uq_appointments_active_doctor_slot;
+CREATE UNIQUE INDEX CONCURRENTLY uq_appointments_active_doctor_slot
+    ON appointments (doctor_id, appointment_date, appointment_time)
+    WHERE status IN ('pending', 'approved', 'completed', 'reschedule_requested');
+
+-- Agenda del médico: findByDoctorId, findPageByDoctorId[After], streamByDoctorId
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_doctor_id_date;
+CREATE INDEX CONCURRENTLY idx_appointments_doctor_id_date
+    ON appointments (doctor_id, appointment_date, appointment_time, id) INCLUDE (status);
+
+-- Citas del paciente: findPageByPatientId[After], streamByPatientId
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_patient_id_date;
+CREATE INDEX CONCURRENTLY idx_appointments_patient_id_date
+    ON appointments (patient_id, appointment_date DESC, appointment_time DESC, id DESC);
+
+-- Precarga del índice de disponibilidad (findBookedSlotsFrom)
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_active_from_doctor_id;
+CREATE INDEX CONCURRENTLY idx_appointments_active_from_doctor_id
+    ON appointments (appointment_date) INCLUDE (doctor_id, appointment_time)
+    WHERE status IN ('pending', 'approved', 'completed', 'reschedule_requested');
+
+DROP INDEX CONCURRENTLY IF EXISTS uq_appointments_active_slot;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_doctor_date;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_patient_date;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_active_from;
+
+-- El relleno de V4 reescribió todas las filas y casi duplicó los índices que no se reconstruyen aquí
+REINDEX INDEX CONCURRENTLY appointments_pkey;
+
+REINDEX INDEX CONCURRENTLY idx_appointments_status_date;
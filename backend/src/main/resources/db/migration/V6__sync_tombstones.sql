@@ -0,0 +1,46 @@
+-- Sincronización incremental (?since=<token>) de citas y pacientes: los cambios salen de updated_at
+-- y los borrados de esta tabla de lápidas, que rellenan los triggers de abajo. Con un trigger se
+-- registra cualquier DELETE, venga de la aplicación, de una migración o de psql.
+-- doctor_id / patient_id permiten entregar a cada médico o paciente solo los borrados de sus citas.
+
+CREATE TABLE IF NOT EXISTS sync_tombstones (
+    id bigserial PRIMARY KEY,
+    entity_type varchar(20) NOT NULL,
+    entity_id bigint NOT NULL,
+    doctor_id bigint,
+    patient_id bigint,
+    deleted_at timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_type_deleted
+    ON sync_tombstones (entity_type, deleted_at);
+
+-- clock_timestamp() y no now(): now() es el inicio de la transacción y una transacción larga
+-- dejaría la lápida con una marca anterior a la de cambios que el cliente ya recibió
+CREATE OR REPLACE FUNCTION appointments_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO sync_tombstones (entity_type, entity_id, doctor_id, patient_id, deleted_at)
+    VALUES ('appointment', OLD.id, OLD.doctor_id, OLD.patient_id, clock_timestamp()::timestamp);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_appointments_tombstone
+    AFTER DELETE ON appointments
+    FOR EACH ROW EXECUTE FUNCTION appointments_tombstone();
+
+CREATE OR REPLACE FUNCTION patients_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO sync_tombstones (entity_type, entity_id, deleted_at)
+    VALUES ('patient', OLD.id, clock_timestamp()::timestamp);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_patients_tombstone
+    AFTER DELETE ON patients
+    FOR EACH ROW EXECUTE FUNCTION patients_tombstone();
+
+-- Filas insertadas fuera de JPA sin updated_at no saldrían nunca en la sincronización
+UPDATE patients SET updated_at = COALESCE(created_at, LOCALTIMESTAMP) WHERE updated_at IS NULL;
+UPDATE appointments SET updated_at = COALESCE(created_at, LOCALTIMESTAMP) WHERE updated_at IS NULL;
@@ -0,0 +1,17 @@
+-- Índices de la sincronización incremental: recorren los cambios en orden (updated_at, id) a partir
+-- del token, así cada lote lee solo las filas que devuelve. CONCURRENTLY y fuera de transacción,
+-- como V5; cada índice se borra antes de crearlo por si un intento anterior lo dejó INVALID.
+
+-- Administradores: todas las citas
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_updated_at_id;
+CREATE INDEX CONCURRENTLY idx_appointments_updated_at_id
+    ON appointments (updated_at, id);
+
+-- Médicos: sus citas. Los pacientes tienen pocas citas y les basta idx_appointments_patient_id_date
+DROP INDEX CONCURRENTLY IF EXISTS idx_appointments_doctor_id_updated_at;
+CREATE INDEX CONCURRENTLY idx_appointments_doctor_id_updated_at
+    ON appointments (doctor_id, updated_at, id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_patients_updated_at_id;
+CREATE INDEX CONCURRENTLY idx_patients_updated_at_id
+    ON patients (updated_at, id);
@@ -0,0 +1,16 @@
+-- Respuestas de POST con cabecera Idempotency-Key, compartidas entre instancias cuando
+-- app.idempotency.store = database. Con store = memory (valor por defecto) la tabla queda vacía.
+-- id = endpoint:propietario:clave. status_code NULL = la petición original sigue en curso; su
+-- expires_at es entonces el plazo tras el que otra petición puede retomar la clave.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id varchar(400) PRIMARY KEY,
+    request_hash varchar(64) NOT NULL,
+    status_code integer,
+    response_body text,
+    created_at timestamp(6) NOT NULL,
+    expires_at timestamp(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at
+    ON idempotency_keys (expires_at);
@@ -0,0 +1,40 @@
+-- Cola persistente de análisis de IA. Cada petición es una fila: QUEUED hasta que un worker la
+-- reclama (RUNNING), DONE al terminar y DEAD tras agotar los reintentos. Los workers de cualquier
+-- instancia reclaman con SELECT ... FOR UPDATE SKIP LOCKED sobre el índice parcial de abajo.
+-- run_after: cuándo puede reclamarse. En QUEUED es el momento del siguiente intento; en RUNNING es
+-- el final del plazo del worker, pasado el cual otra instancia la retoma (el worker murió).
+-- attempts sube con cada reclamación y sirve de testigo: un worker que perdió su plazo ya no puede
+-- cerrar la fila. previous_result guarda el resultado del paciente al encolar, para restaurarlo si
+-- el análisis acaba en DEAD y no hay otro resultado.
+
+CREATE TABLE IF NOT EXISTS analysis_jobs (
+    id bigserial PRIMARY KEY,
+    patient_id bigint NOT NULL REFERENCES patients (id) ON DELETE CASCADE,
+    status varchar(20) NOT NULL CHECK (status IN ('QUEUED', 'RUNNING', 'DONE', 'DEAD')),
+    file_name varchar(255) NOT NULL,
+    content_type varchar(100),
+    input_path varchar(255) NOT NULL,
+    attempts integer NOT NULL DEFAULT 0,
+    run_after timestamp(6) NOT NULL,
+    locked_by varchar(100),
+    previous_result varchar(20),
+    result varchar(20) CHECK (result IN ('NORMAL', 'ABNORMAL')),
+    confidence integer,
+    findings text,
+    last_error text,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    finished_at timestamp(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_claimable
+    ON analysis_jobs (run_after, id)
+    WHERE status IN ('QUEUED', 'RUNNING');
+
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_patient_id
+    ON analysis_jobs (patient_id, id);
+
+-- Cola de fallidos del panel de administración
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_dead
+    ON analysis_jobs (id)
+    WHERE status = 'DEAD';
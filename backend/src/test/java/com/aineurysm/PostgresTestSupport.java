@@ -0,0 +1,72 @@
+package com.aineurysm;
+
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Base de datos PostgreSQL para las pruebas que dependen de su comportamiento (bloqueos, SKIP LOCKED,
+// índices parciales). Se configura con -Dtest.postgres.url / TEST_POSTGRES_URL (y .username, .password);
+// la base debe existir y Flyway crea el esquema. Si no responde, la prueba se omite en lugar de fallar.
+public final class PostgresTestSupport {
+
+    public static final String URL = setting("test.postgres.url", "jdbc:postgresql://localhost:5432/aineurysm_test");
+
+    public static final String USERNAME = setting("test.postgres.username", "postgres");
+
+    public static final String PASSWORD = setting("test.postgres.password", "password");
+
+    private PostgresTestSupport() {
+    }
+
+    public static void assumeAvailable() {
+        try (Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD)) {
+            Assumptions.assumeTrue(connection.isValid(5), "PostgreSQL no responde en " + URL);
+        } catch (SQLException e) {
+            Assumptions.abort("PostgreSQL no disponible en " + URL + ": " + e.getMessage());
+        }
+    }
+
+    // Una instancia completa de la aplicación sobre la base de pruebas, con su propio pool de conexiones
+    // y su propio estado en memoria: dos llamadas equivalen a dos réplicas detrás del balanceador.
+    // Sin workers de análisis salvo que extraArgs diga otra cosa.
+    public static ConfigurableApplicationContext startInstance(String... extraArgs) {
+        return startInstance(Map.of(), extraArgs);
+    }
+
+    // beans se registran antes de arrancar, por ejemplo un Analyzer de prueba con app.analysis.analyzer
+    // distinto de local
+    public static ConfigurableApplicationContext startInstance(Map<String, Object> beans, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + URL,
+                "--spring.datasource.username=" + USERNAME,
+                "--spring.datasource.password=" + PASSWORD,
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.main.banner-mode=off",
+                "--app.analysis.worker.threads=0"));
+        // Un argumento repetido en la línea de órdenes se junta con comas: extraArgs sustituye al de arriba
+        for (String extra : extraArgs) {
+            String key = extra.substring(0, extra.indexOf('=') + 1);
+            args.removeIf(arg -> arg.startsWith(key));
+            args.add(extra);
+        }
+        return new SpringApplicationBuilder(AiNeurysmApplication.class)
+                .initializers(context -> beans.forEach(context.getBeanFactory()::registerSingleton))
+                .run(args.toArray(String[]::new));
+    }
+
+    private static String setting(String property, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(property.toUpperCase().replace('.', '_'));
+        }
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,55 @@
+package com.aineurysm.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AppointmentCursorTest {
+
+    @Test
+    void encodeAndDecodeRoundTrip() {
+        for (LocalTime time : new LocalTime[] {LocalTime.of(9, 0), LocalTime.of(14, 30, 15), LocalTime.of(23, 59, 59, 1_000)}) {
+            AppointmentCursor cursor = new AppointmentCursor(LocalDate.of(2024, 12, 31), time, Long.MAX_VALUE);
+
+            AppointmentCursor decoded = AppointmentCursor.decode(cursor.encode());
+
+            assertThat(decoded.getDate()).isEqualTo(cursor.getDate());
+            assertThat(decoded.getTime()).isEqualTo(time);
+            assertThat(decoded.getId()).isEqualTo(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    void encodedCursorIsSafeInAQueryString() {
+        String encoded = new AppointmentCursor(LocalDate.of(2024, 5, 1), LocalTime.of(9, 30), 12345L).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingCursorIsTheFirstPage() {
+        assertThat(AppointmentCursor.decode(null)).isNull();
+        assertThat(AppointmentCursor.decode("  ")).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        for (String cursor : new String[] {"no es base64!", encode("2024-05-01|09:30"), encode("2024-13-01|09:30|1"),
+                encode("2024-05-01|09:30|uno")}) {
+            assertThatThrownBy(() -> AppointmentCursor.decode(cursor))
+                    .as(cursor)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Cursor inválido");
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
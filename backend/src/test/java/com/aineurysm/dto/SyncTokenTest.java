@@ -0,0 +1,63 @@
+package com.aineurysm.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncTokenTest {
+
+    @Test
+    void encodeAndDecodeRoundTrip() {
+        // Con y sin segundos ni fracciones: LocalDateTime.toString() los omite cuando son cero
+        for (LocalDateTime updatedAt : new LocalDateTime[] {LocalDateTime.of(2024, 5, 1, 9, 30),
+                LocalDateTime.of(2024, 5, 1, 9, 30, 15), LocalDateTime.of(2024, 5, 1, 9, 30, 15, 123_456_000)}) {
+            SyncToken token = new SyncToken(updatedAt, 42L);
+
+            SyncToken decoded = SyncToken.decode(token.encode());
+
+            assertThat(decoded.getUpdatedAt()).isEqualTo(updatedAt);
+            assertThat(decoded.getId()).isEqualTo(42L);
+        }
+    }
+
+    @Test
+    void tokenAtAnInstantCoversEveryRowOfThatInstant() {
+        LocalDateTime instant = LocalDateTime.of(2024, 5, 1, 9, 30, 0, 1_000);
+
+        SyncToken decoded = SyncToken.decode(SyncToken.at(instant).encode());
+
+        assertThat(decoded.getUpdatedAt()).isEqualTo(instant);
+        assertThat(decoded.getId()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void encodedTokenIsSafeInAQueryString() {
+        assertThat(SyncToken.at(LocalDateTime.of(2024, 5, 1, 9, 30, 15, 999_999_999)).encode()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void missingTokenMeansNoToken() {
+        assertThat(SyncToken.decode(null)).isNull();
+        assertThat(SyncToken.decode("")).isNull();
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        for (String token : new String[] {"%%%", encode("2024-05-01T09:30"), encode("2024-05-01|1"),
+                encode("2024-05-01T09:30|uno")}) {
+            assertThatThrownBy(() -> SyncToken.decode(token))
+                    .as(token)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Token de sincronización inválido");
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,71 @@
+package com.aineurysm.model;
+
+import com.aineurysm.model.Appointment.AppointmentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.aineurysm.model.Appointment.AppointmentStatus.approved;
+import static com.aineurysm.model.Appointment.AppointmentStatus.cancelled;
+import static com.aineurysm.model.Appointment.AppointmentStatus.completed;
+import static com.aineurysm.model.Appointment.AppointmentStatus.pending;
+import static com.aineurysm.model.Appointment.AppointmentStatus.rejected;
+import static com.aineurysm.model.Appointment.AppointmentStatus.reschedule_requested;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Máquina de estados de las citas: cada par (origen, destino) permitido o no
+class AppointmentStatusTest {
+
+    // Destino -> estados desde los que se puede llegar a él
+    private static final Map<AppointmentStatus, Set<AppointmentStatus>> ALLOWED = new EnumMap<>(Map.of(
+            pending, EnumSet.noneOf(AppointmentStatus.class),
+            approved, EnumSet.of(pending, reschedule_requested),
+            rejected, EnumSet.of(pending, reschedule_requested),
+            cancelled, EnumSet.of(pending, approved, reschedule_requested),
+            reschedule_requested, EnumSet.of(pending, approved),
+            completed, EnumSet.of(approved)));
+
+    @Test
+    void everyTransitionMatchesTheStateMachine() {
+        assertThat(ALLOWED.keySet()).containsExactlyInAnyOrder(AppointmentStatus.values());
+        for (AppointmentStatus source : AppointmentStatus.values()) {
+            for (AppointmentStatus target : AppointmentStatus.values()) {
+                assertThat(source.canTransitionTo(target))
+                        .as("%s -> %s", source, target)
+                        .isEqualTo(ALLOWED.get(target).contains(source));
+            }
+        }
+    }
+
+    @Test
+    void allowedSourcesListsExactlyTheAllowedStates() {
+        for (AppointmentStatus target : AppointmentStatus.values()) {
+            assertThat(target.allowedSources()).as("origen de %s", target)
+                    .doesNotHaveDuplicates()
+                    .containsExactlyInAnyOrderElementsOf(ALLOWED.get(target));
+        }
+    }
+
+    @Test
+    void finalStatesCannotChange() {
+        for (AppointmentStatus finalState : EnumSet.of(rejected, cancelled, completed)) {
+            assertThat(AppointmentStatus.values())
+                    .as("desde %s", finalState)
+                    .noneMatch(finalState::canTransitionTo);
+        }
+        // Ningún estado vuelve a pending ni pasa a sí mismo
+        assertThat(AppointmentStatus.values()).noneMatch(status -> status.canTransitionTo(pending));
+        assertThat(AppointmentStatus.values()).noneMatch(status -> status.canTransitionTo(status));
+    }
+
+    @Test
+    void activeStatusesAreTheOnesThatOccupyTheSlot() {
+        assertThat(AppointmentStatus.activeStatuses()).containsExactlyInAnyOrderElementsOf(
+                Arrays.stream(AppointmentStatus.values()).filter(AppointmentStatus::occupiesSlot).toList());
+        assertThat(AppointmentStatus.activeStatuses()).doesNotContain(rejected, cancelled);
+    }
+}
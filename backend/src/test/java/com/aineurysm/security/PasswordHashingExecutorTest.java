@@ -0,0 +1,133 @@
+package com.aineurysm.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Con un solo hilo de BCrypt y un PasswordEncoder de prueba: la contraseña "bloquea" ocupa el hilo
+// hasta que la prueba abre el cerrojo, y así las demás tareas se quedan en la cola.
+class PasswordHashingExecutorTest {
+
+    private static final String BLOCKS = "bloquea";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<String> hashed = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private PasswordHashingExecutor hashing;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (hashing != null) {
+            hashing.shutdown();
+        }
+    }
+
+    @Test
+    void queuedLoginRunsBeforeQueuedRegister() throws Exception {
+        hashing = new PasswordHashingExecutor(new BlockingEncoder(), new SimpleMeterRegistry(), 1, 10, 10_000);
+        Future<Boolean> blocking = occupyTheThread();
+
+        Future<String> register = callers.submit(() -> hashing.encode("registro"));
+        awaitUntil(() -> hashing.getQueueDepth() == 1);
+        Future<Boolean> login = callers.submit(() -> hashing.matches("login", "hash"));
+        awaitUntil(() -> hashing.getQueueDepth() == 2);
+        release.countDown();
+
+        assertThat(blocking.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(login.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(register.get(10, TimeUnit.SECONDS)).isEqualTo("hash:registro");
+        assertThat(hashed).containsExactly("matches:" + BLOCKS, "matches:login", "encode:registro");
+    }
+
+    @Test
+    void callIsRejectedOnceThreadsAndQueueAreTaken() throws Exception {
+        hashing = new PasswordHashingExecutor(new BlockingEncoder(), new SimpleMeterRegistry(), 1, 1, 10_000);
+        Future<Boolean> blocking = occupyTheThread();
+        Future<Boolean> queued = callers.submit(() -> hashing.matches("en-cola", "hash"));
+        awaitUntil(() -> hashing.getQueueDepth() == 1);
+
+        assertThatThrownBy(() -> hashing.matches("sobra", "hash"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("ocupado");
+        assertThat(hashing.getRejectedCount()).isEqualTo(1);
+        assertThat(hashed).doesNotContain("matches:sobra");
+
+        release.countDown();
+        assertThat(blocking.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+        // Con las plazas devueltas se vuelve a admitir
+        assertThat(hashing.matches("despues", "hash")).isTrue();
+    }
+
+    @Test
+    void timedOutQueuedTaskLeavesTheQueueAndReturnsItsPermit() throws Exception {
+        hashing = new PasswordHashingExecutor(new BlockingEncoder(), new SimpleMeterRegistry(), 1, 1, 500);
+        occupyTheThread();
+
+        assertThatThrownBy(() -> hashing.matches("caduca", "hash"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("ocupado");
+        assertThat(hashing.getQueueDepth()).isZero();
+
+        // El hilo sigue ocupado con la primera tarea; sin la plaza devuelta esta llamada se rechazaría al instante
+        Future<Boolean> admitted = callers.submit(() -> hashing.matches("admitida", "hash"));
+        awaitUntil(() -> hashing.getQueueDepth() == 1);
+        release.countDown();
+
+        assertThat(admitted.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(hashed).doesNotContain("matches:caduca");
+    }
+
+    private Future<Boolean> occupyTheThread() throws InterruptedException {
+        Future<Boolean> blocking = callers.submit(() -> hashing.matches(BLOCKS, "hash"));
+        awaitUntil(() -> hashing.getActiveCount() == 1);
+        return blocking;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("tiempo de espera agotado").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private final class BlockingEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            hashed.add("encode:" + rawPassword);
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            hashed.add("matches:" + rawPassword);
+            if (BLOCKS.contentEquals(rawPassword)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }
+    }
+}
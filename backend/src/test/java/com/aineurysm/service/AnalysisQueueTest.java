@@ -0,0 +1,240 @@
+package com.aineurysm.service;
+
+import com.aineurysm.PostgresTestSupport;
+import com.aineurysm.dto.AnalysisOutcome;
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.model.Patient;
+import com.aineurysm.repository.PatientRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Transiciones de la cola de análisis sobre PostgreSQL, con dos instancias y sin workers: las pruebas
+// reclaman, terminan y hacen fallar los trabajos llamando a AnalysisQueue directamente.
+class AnalysisQueueTest {
+
+    private static final long RETRY_BACKOFF_IN_MS = 300;
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    private static final List<Long> patientIds = new ArrayList<>();
+
+    private static Path uploadDir;
+
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void startInstances() throws Exception {
+        PostgresTestSupport.assumeAvailable();
+        uploadDir = Files.createTempDirectory("analysis-queue-test");
+        for (int i = 0; i < 2; i++) {
+            instances.add(PostgresTestSupport.startInstance(
+                    "--app.upload-dir=" + uploadDir,
+                    "--app.analysis.max-attempts=" + MAX_ATTEMPTS,
+                    "--app.analysis.retry-backoff=" + RETRY_BACKOFF_IN_MS));
+        }
+        jdbc = instances.get(0).getBean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (jdbc != null) {
+            // Los trabajos se borran en cascada con el paciente
+            patientIds.forEach(id -> jdbc.update("DELETE FROM patients WHERE id = ?", id));
+        }
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void concurrentClaimsHandOutEachJobOnce() throws Exception {
+        Long patientId = createPatient(Patient.AnalysisResult.NORMAL);
+        Set<Long> enqueued = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            enqueued.add(enqueue(queue(i % 2), patientId).getId());
+        }
+
+        // Las dos instancias reclaman de cinco en cinco a la vez hasta vaciar la cola
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<AnalysisJob>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                AnalysisQueue queue = queue(i % 2);
+                String worker = "worker-" + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    List<AnalysisJob> claimed = new ArrayList<>();
+                    List<AnalysisJob> batch;
+                    while (!(batch = queue.claim(5, worker)).isEmpty()) {
+                        claimed.addAll(batch);
+                    }
+                    return claimed;
+                }));
+            }
+            start.countDown();
+
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<AnalysisJob>> result : results) {
+                for (AnalysisJob job : result.get(60, TimeUnit.SECONDS)) {
+                    assertThat(job.getStatus()).isEqualTo(AnalysisJob.Status.RUNNING);
+                    assertThat(job.getAttempts()).isEqualTo(1);
+                    claimed.add(job.getId());
+                }
+            }
+            assertThat(claimed).doesNotHaveDuplicates();
+            assertThat(claimed).containsAll(enqueued);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(resultOf(patientId)).isEqualTo("PENDING");
+    }
+
+    @Test
+    void failedAttemptIsRetriedAfterBackoff() throws Exception {
+        Long patientId = createPatient(Patient.AnalysisResult.NORMAL);
+        AnalysisJob job = claimOnly(enqueue(queue(0), patientId));
+
+        queue(0).fail(job, "IOException: sin respuesta");
+        assertThat(status(job)).isEqualTo("QUEUED");
+        // Hasta que pasa la espera, la otra instancia no lo vuelve a reclamar
+        assertThat(queue(1).claim(10, "worker-1")).extracting(AnalysisJob::getId).doesNotContain(job.getId());
+
+        Thread.sleep(RETRY_BACKOFF_IN_MS + 100);
+        AnalysisJob retried = claimOnly(job);
+        assertThat(retried.getAttempts()).isEqualTo(2);
+        assertThat(retried.getLastError()).isEqualTo("IOException: sin respuesta");
+
+        queue(1).complete(retried, new AnalysisOutcome(Patient.AnalysisResult.ABNORMAL, 90, "Hallazgo"));
+        assertThat(status(job)).isEqualTo("DONE");
+        assertThat(resultOf(patientId)).isEqualTo("ABNORMAL");
+    }
+
+    @Test
+    void exhaustedJobIsDeadLetteredAndCanBeRequeued() throws Exception {
+        Long patientId = createPatient(Patient.AnalysisResult.NORMAL);
+        AnalysisJob job = enqueue(queue(0), patientId);
+        assertThat(resultOf(patientId)).isEqualTo("PENDING");
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            AnalysisJob claimed = claimOnly(job);
+            assertThat(claimed.getAttempts()).isEqualTo(attempt);
+            queue(attempt % 2).fail(claimed, "Error del analizador");
+            if (attempt < MAX_ATTEMPTS) {
+                Thread.sleep((RETRY_BACKOFF_IN_MS << (attempt - 1)) + 100);
+            }
+        }
+        assertThat(status(job)).isEqualTo("DEAD");
+        // Sin ningún análisis terminado, el paciente recupera el resultado que tenía al encolar
+        assertThat(resultOf(patientId)).isEqualTo("NORMAL");
+
+        AnalysisJob requeued = queue(1).retry(job.getId());
+        assertThat(requeued.getStatus()).isEqualTo(AnalysisJob.Status.QUEUED);
+        assertThat(requeued.getAttempts()).isZero();
+        assertThat(resultOf(patientId)).isEqualTo("PENDING");
+
+        AnalysisJob claimed = claimOnly(job);
+        queue(0).complete(claimed, new AnalysisOutcome(Patient.AnalysisResult.NORMAL, 80, "Sin hallazgos"));
+        assertThat(status(job)).isEqualTo("DONE");
+        assertThat(resultOf(patientId)).isEqualTo("NORMAL");
+    }
+
+    // Dos análisis del mismo paciente que terminan a la vez en instancias distintas: cada transacción
+    // debe ver el trabajo que cerró la otra, o el paciente se queda en PENDING sin nada en cola
+    @Test
+    void concurrentCompletionsDoNotLeavePatientPending() throws Exception {
+        Long patientId = createPatient(Patient.AnalysisResult.NORMAL);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 30; round++) {
+                AnalysisJob first = enqueue(queue(0), patientId);
+                AnalysisJob second = enqueue(queue(1), patientId);
+                List<AnalysisJob> claimed = new ArrayList<>(List.of(claimOnly(first), claimOnly(second)));
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> results = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    AnalysisQueue queue = queue(i);
+                    AnalysisJob job = claimed.get(i);
+                    Patient.AnalysisResult result = i == 0 ? Patient.AnalysisResult.NORMAL : Patient.AnalysisResult.ABNORMAL;
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        queue.complete(job, new AnalysisOutcome(result, 75, null));
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> result : results) {
+                    result.get(60, TimeUnit.SECONDS);
+                }
+
+                assertThat(resultOf(patientId)).as("resultado tras la ronda %d", round).isIn("NORMAL", "ABNORMAL");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(jdbc.queryForObject("SELECT total_analyses FROM patients WHERE id = ?", Integer.class, patientId))
+                .isEqualTo(60);
+    }
+
+    private static AnalysisQueue queue(int instance) {
+        return instances.get(instance).getBean(AnalysisQueue.class);
+    }
+
+    private static Long createPatient(Patient.AnalysisResult result) {
+        Patient patient = new Patient();
+        patient.setName("Paciente de prueba");
+        patient.setEmail("analysis-" + UUID.randomUUID() + "@example.com");
+        patient.setPhone("600000000");
+        patient.setStatus(Patient.PatientStatus.ACTIVE);
+        patient.setLastAnalysisResult(result);
+        Long id = instances.get(0).getBean(PatientRepository.class).save(patient).getId();
+        patientIds.add(id);
+        return id;
+    }
+
+    private static AnalysisJob enqueue(AnalysisQueue queue, Long patientId) throws Exception {
+        return queue.enqueue(patientId, new MockMultipartFile("file", "scan.png", "image/png", new byte[] {1, 2, 3}));
+    }
+
+    // Reclama hasta encontrar el trabajo indicado; los demás que salgan vuelven a la cola
+    private static AnalysisJob claimOnly(AnalysisJob wanted) {
+        AnalysisJob found = null;
+        for (AnalysisJob job : queue(0).claim(100, "worker-0")) {
+            if (job.getId().equals(wanted.getId())) {
+                found = job;
+            } else {
+                queue(0).release(job);
+            }
+        }
+        assertThat(found).as("trabajo %d reclamable", wanted.getId()).isNotNull();
+        return found;
+    }
+
+    private static String status(AnalysisJob job) {
+        return jdbc.queryForObject("SELECT status FROM analysis_jobs WHERE id = ?", String.class, job.getId());
+    }
+
+    private static String resultOf(Long patientId) {
+        return jdbc.queryForObject("SELECT last_analysis_result FROM patients WHERE id = ?", String.class, patientId);
+    }
+}
@@ -0,0 +1,89 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.AnalysisJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Trabajos reclamados justo cuando la instancia se para, sin base de datos: la cola es un mock y
+// la parada se simula desde claim, entre la consulta y el reparto a los hilos.
+class AnalysisWorkerShutdownTest {
+
+    private final AnalysisQueue queue = mock(AnalysisQueue.class);
+
+    private final Analyzer analyzer = mock(Analyzer.class);
+
+    private final AnalysisWorker worker = new AnalysisWorker(queue, analyzer, new SimpleMeterRegistry(), 2, 50);
+
+    @AfterEach
+    void stopWorker() throws InterruptedException {
+        worker.stop();
+    }
+
+    @Test
+    void jobsClaimedWhileStoppingGoBackToTheQueue() throws Exception {
+        List<AnalysisJob> jobs = List.of(job(1L), job(2L));
+        AtomicBoolean claimed = new AtomicBoolean();
+        when(queue.claim(anyInt(), anyString())).thenAnswer(invocation -> {
+            if (claimed.getAndSet(true)) {
+                return List.of();
+            }
+            ReflectionTestUtils.setField(worker, "running", false);
+            return jobs;
+        });
+
+        worker.start();
+
+        verify(queue, timeout(5_000)).release(jobs.get(0));
+        verify(queue, timeout(5_000)).release(jobs.get(1));
+        verify(analyzer, never()).analyze(any(), any());
+        assertThat(freeSlots().availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void jobRejectedByTheExecutorGoesBackAndReturnsItsSlot() throws Exception {
+        AnalysisJob job = job(3L);
+        AtomicBoolean claimed = new AtomicBoolean();
+        when(queue.claim(anyInt(), anyString())).thenAnswer(invocation -> {
+            if (claimed.getAndSet(true)) {
+                return List.of();
+            }
+            ((ExecutorService) ReflectionTestUtils.getField(worker, "executor")).shutdownNow();
+            return List.of(job);
+        });
+
+        worker.start();
+
+        verify(queue, timeout(5_000)).release(job);
+        verify(analyzer, never()).analyze(any(), any());
+        assertThat(freeSlots().availablePermits()).isEqualTo(2);
+    }
+
+    private Semaphore freeSlots() {
+        return (Semaphore) ReflectionTestUtils.getField(worker, "freeSlots");
+    }
+
+    private static AnalysisJob job(Long id) {
+        AnalysisJob job = new AnalysisJob();
+        job.setId(id);
+        job.setStatus(AnalysisJob.Status.RUNNING);
+        job.setAttempts(1);
+        return job;
+    }
+}
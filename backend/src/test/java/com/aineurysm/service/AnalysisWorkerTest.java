@@ -0,0 +1,113 @@
+package com.aineurysm.service;
+
+import com.aineurysm.PostgresTestSupport;
+import com.aineurysm.dto.AnalysisOutcome;
+import com.aineurysm.model.AnalysisJob;
+import com.aineurysm.model.Patient;
+import com.aineurysm.repository.PatientRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// AnalysisWorker de punta a punta con un Analyzer de prueba (app.analysis.analyzer = test): falla el
+// primer intento de cada trabajo y acierta el segundo, salvo los ficheros que fallan siempre.
+class AnalysisWorkerTest {
+
+    private static final String ALWAYS_FAILS = "siempre-falla.png";
+
+    private static ConfigurableApplicationContext instance;
+
+    private static JdbcTemplate jdbc;
+
+    private static Long patientId;
+
+    @BeforeAll
+    static void startInstance() throws Exception {
+        PostgresTestSupport.assumeAvailable();
+        Path uploadDir = Files.createTempDirectory("analysis-worker-test");
+        instance = PostgresTestSupport.startInstance(Map.of("scriptedAnalyzer", new ScriptedAnalyzer()),
+                "--app.analysis.analyzer=test",
+                "--app.analysis.worker.threads=2",
+                "--app.analysis.worker.poll-interval=100",
+                "--app.analysis.max-attempts=2",
+                "--app.analysis.retry-backoff=100",
+                "--app.upload-dir=" + uploadDir);
+        jdbc = instance.getBean(JdbcTemplate.class);
+
+        Patient patient = new Patient();
+        patient.setName("Paciente de prueba");
+        patient.setEmail("worker-" + UUID.randomUUID() + "@example.com");
+        patient.setPhone("600000000");
+        patient.setStatus(Patient.PatientStatus.ACTIVE);
+        patient.setLastAnalysisResult(Patient.AnalysisResult.NORMAL);
+        patientId = instance.getBean(PatientRepository.class).save(patient).getId();
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        if (jdbc != null && patientId != null) {
+            jdbc.update("DELETE FROM patients WHERE id = ?", patientId);
+        }
+        if (instance != null) {
+            instance.close();
+        }
+    }
+
+    @Test
+    void failedAttemptIsRetriedUntilTheAnalyzerSucceeds() throws Exception {
+        AnalysisJob job = instance.getBean(AnalysisQueue.class).enqueue(patientId,
+                new MockMultipartFile("file", "scan.png", "image/png", new byte[] {1, 2, 3}));
+
+        Map<String, Object> finished = awaitFinished(job);
+        assertThat(finished.get("status")).isEqualTo("DONE");
+        assertThat(finished.get("attempts")).isEqualTo(2);
+        assertThat(finished.get("result")).isEqualTo("ABNORMAL");
+        assertThat(jdbc.queryForObject("SELECT last_analysis_result FROM patients WHERE id = ?", String.class, patientId))
+                .isEqualTo("ABNORMAL");
+    }
+
+    @Test
+    void analyzerThatAlwaysFailsEndsInDead() throws Exception {
+        AnalysisJob job = instance.getBean(AnalysisQueue.class).enqueue(patientId,
+                new MockMultipartFile("file", ALWAYS_FAILS, "image/png", new byte[] {4, 5, 6}));
+
+        Map<String, Object> finished = awaitFinished(job);
+        assertThat(finished.get("status")).isEqualTo("DEAD");
+        assertThat(finished.get("attempts")).isEqualTo(2);
+        assertThat((String) finished.get("last_error")).contains("Fallo simulado");
+    }
+
+    private static Map<String, Object> awaitFinished(AnalysisJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> row = jdbc.queryForMap(
+                    "SELECT status, attempts, result, last_error FROM analysis_jobs WHERE id = ?", job.getId());
+            if (List.of("DONE", "DEAD").contains(row.get("status"))) {
+                return row;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("El análisis " + job.getId() + " no terminó a tiempo");
+    }
+
+    private static final class ScriptedAnalyzer implements Analyzer {
+        @Override
+        public AnalysisOutcome analyze(AnalysisJob job, Path input) throws Exception {
+            if (job.getAttempts() == 1 || ALWAYS_FAILS.equals(job.getFileName())) {
+                throw new IllegalStateException("Fallo simulado en el intento " + job.getAttempts());
+            }
+            return new AnalysisOutcome(Patient.AnalysisResult.ABNORMAL, 95, "Hallazgo simulado");
+        }
+    }
+}
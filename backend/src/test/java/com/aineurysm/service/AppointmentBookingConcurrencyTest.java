@@ -0,0 +1,166 @@
+package com.aineurysm.service;
+
+import com.aineurysm.PostgresTestSupport;
+import com.aineurysm.model.Appointment;
+import com.aineurysm.model.User;
+import com.aineurysm.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Varias réplicas de la aplicación (contextos de Spring con su propio pool y su propio índice de
+// horarios en memoria) sobre la misma base de datos reservan a la vez el mismo médico, fecha y hora.
+// En cada ronda debe salir exactamente una cita activa por horario.
+class AppointmentBookingConcurrencyTest {
+
+    private static final int INSTANCES = 3;
+
+    private static final int THREADS_PER_INSTANCE = 16;
+
+    private static final int ROUNDS = 20;
+
+    private static final LocalTime TIME = LocalTime.of(10, 0);
+
+    private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    private static JdbcTemplate jdbc;
+
+    private static User doctor;
+
+    private static User patient;
+
+    // Fechas lejanas y distintas en cada ejecución: no chocan con otras citas de la base de pruebas
+    private static LocalDate firstDate;
+
+    @BeforeAll
+    static void startInstances() {
+        PostgresTestSupport.assumeAvailable();
+        // Una a una: la primera aplica las migraciones
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(PostgresTestSupport.startInstance());
+        }
+        jdbc = instances.get(0).getBean(JdbcTemplate.class);
+
+        UserRepository userRepository = instances.get(0).getBean(UserRepository.class);
+        String suffix = UUID.randomUUID().toString();
+        doctor = userRepository.save(user("doctor", "booking-doctor-" + suffix + "@example.com"));
+        patient = userRepository.save(user("patient", "booking-patient-" + suffix + "@example.com"));
+        firstDate = LocalDate.of(2090, 1, 1).plusDays(Math.floorMod(suffix.hashCode(), 3000) * (long) ROUNDS);
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (jdbc != null && doctor != null) {
+            jdbc.update("DELETE FROM appointments WHERE doctor_id = ?", doctor.getId());
+            jdbc.update("DELETE FROM users WHERE id IN (?, ?)", doctor.getId(), patient.getId());
+        }
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void onlyOneBookingPerSlotAcrossInstances() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            LocalDate date = firstDate.plusDays(round);
+
+            assertThat(bookConcurrently(date)).as("reservas aceptadas el %s", date).isEqualTo(1);
+            assertThat(activeAppointments(date)).as("citas activas el %s", date).isEqualTo(1);
+        }
+    }
+
+    // Cancelada la cita, el horario vuelve a estar libre aunque los índices en memoria de las otras
+    // réplicas lo sigan viendo ocupado; de nuevo solo una de las reservas concurrentes gana
+    @Test
+    void cancelledSlotIsBookedOnceAgainAcrossInstances() throws Exception {
+        LocalDate date = firstDate.minusDays(1);
+        assertThat(bookConcurrently(date)).isEqualTo(1);
+
+        for (int round = 0; round < 5; round++) {
+            Long id = jdbc.queryForObject("SELECT id FROM appointments WHERE doctor_id = ? AND appointment_date = ? " +
+                    "AND status <> 'cancelled'", Long.class, doctor.getId(), date);
+            instances.get(round % INSTANCES).getBean(AppointmentService.class)
+                    .transitionStatus(id, Appointment.AppointmentStatus.cancelled, null);
+
+            assertThat(bookConcurrently(date)).as("reservas aceptadas tras cancelar, ronda %d", round).isEqualTo(1);
+            assertThat(activeAppointments(date)).isEqualTo(1);
+        }
+    }
+
+    // Todas las réplicas reservan el mismo horario a la vez; devuelve cuántas reservas se aceptaron
+    private int bookConcurrently(LocalDate date) throws Exception {
+        int threads = INSTANCES * THREADS_PER_INSTANCE;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                AppointmentService service = instances.get(i % INSTANCES).getBean(AppointmentService.class);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        service.createAppointment(appointment(date));
+                        return true;
+                    } catch (RuntimeException e) {
+                        assertThat(e.getMessage()).startsWith("Ya existe una cita programada");
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            return accepted;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int activeAppointments(LocalDate date) {
+        Integer count = jdbc.queryForObject("SELECT count(*) FROM appointments WHERE doctor_id = ? " +
+                "AND appointment_date = ? AND appointment_time = ? AND status <> 'cancelled'",
+                Integer.class, doctor.getId(), date, TIME);
+        return count != null ? count : 0;
+    }
+
+    private static Appointment appointment(LocalDate date) {
+        Appointment appointment = new Appointment();
+        appointment.setDate(date);
+        appointment.setTime(TIME);
+        appointment.setDoctorId(doctor.getId());
+        appointment.setPatientId(patient.getId());
+        appointment.setPatientName(patient.getName());
+        appointment.setPatientEmail(patient.getEmail());
+        appointment.setStatus(Appointment.AppointmentStatus.pending);
+        return appointment;
+    }
+
+    private static User user(String role, String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("-");
+        user.setName(role + " de prueba");
+        user.setRole(role);
+        user.setIsActive(true);
+        user.setIsApproved(true);
+        return user;
+    }
+}
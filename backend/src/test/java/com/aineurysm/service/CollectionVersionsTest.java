@@ -0,0 +1,112 @@
+package com.aineurysm.service;
+
+import com.aineurysm.repository.CollectionVersionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Sin base de datos: la tabla collection_versions la sustituye un mock del repositorio y la
+// transacción se simula con las sincronizaciones de TransactionSynchronizationManager.
+class CollectionVersionsTest {
+
+    private final CollectionVersionRepository repository = mock(CollectionVersionRepository.class);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void databaseBumpRunsOncePerCollectionBeforeCommitInAlphabeticalOrder() {
+        CollectionVersions versions = database(60_000);
+        when(repository.increment(anyString())).thenReturn(1);
+        when(repository.findVersion(CollectionVersions.APPOINTMENTS)).thenReturn(7L);
+        when(repository.findVersion(CollectionVersions.PATIENTS)).thenReturn(3L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump(CollectionVersions.PATIENTS);
+        versions.bump(CollectionVersions.APPOINTMENTS);
+        versions.bump(CollectionVersions.PATIENTS);
+        verify(repository, never()).increment(anyString());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).increment(CollectionVersions.APPOINTMENTS);
+        order.verify(repository).increment(CollectionVersions.PATIENTS);
+        verify(repository, times(2)).increment(anyString());
+        assertThat(TransactionSynchronizationManager.getResource(versions)).isNull();
+
+        // La versión escrita queda guardada: el siguiente ETag no vuelve a la tabla
+        assertThat(versions.etag(CollectionVersions.APPOINTMENTS, "x")).isEqualTo("\"appointments-7-x\"");
+        verify(repository, times(1)).findVersion(CollectionVersions.APPOINTMENTS);
+    }
+
+    @Test
+    void rolledBackTransactionKeepsTheVersion() {
+        CollectionVersions versions = memory();
+        String before = versions.etag(CollectionVersions.USERS);
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump(CollectionVersions.USERS);
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(versions.etag(CollectionVersions.USERS)).isEqualTo(before);
+    }
+
+    @Test
+    void memoryBumpOutsideTransactionChangesTheEtagAtOnce() {
+        CollectionVersions versions = memory();
+        String before = versions.etag(CollectionVersions.PATIENTS, "list");
+
+        versions.bump(CollectionVersions.PATIENTS);
+
+        assertThat(versions.etag(CollectionVersions.PATIENTS, "list")).isNotEqualTo(before);
+        verify(repository, never()).increment(anyString());
+    }
+
+    @Test
+    void databaseVersionIsReadAgainOnlyAfterRefresh() throws Exception {
+        CollectionVersions versions = database(100);
+        when(repository.findVersion(CollectionVersions.USERS)).thenReturn(1L, 2L);
+
+        assertThat(versions.etag(CollectionVersions.USERS)).isEqualTo("\"users-1-\"");
+        // Otra instancia subió la versión: esta lo ve al pasar app.etags.refresh
+        assertThat(versions.etag(CollectionVersions.USERS)).isEqualTo("\"users-1-\"");
+        Thread.sleep(150);
+        assertThat(versions.etag(CollectionVersions.USERS)).isEqualTo("\"users-2-\"");
+    }
+
+    private CollectionVersions database(long refreshInMs) {
+        CollectionVersions versions = new CollectionVersions(new SimpleMeterRegistry(), "database", 0, refreshInMs);
+        ReflectionTestUtils.setField(versions, "versionRepository", repository);
+        return versions;
+    }
+
+    private CollectionVersions memory() {
+        CollectionVersions versions = new CollectionVersions(new SimpleMeterRegistry(), "memory", 0, 0);
+        ReflectionTestUtils.setField(versions, "versionRepository", repository);
+        return versions;
+    }
+}
@@ -0,0 +1,119 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.Patient;
+import com.aineurysm.repository.PatientRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// CSV de /api/patients/export sin base de datos: el cursor JDBC es un ResultSet simulado con las
+// filas de cada prueba.
+class ExportServiceTest {
+
+    private static final String[] LABELS = {"name", "email", "phone", "status", "totalAnalyses", "createdAt"};
+
+    private static final int[] TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP};
+
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+
+    @Test
+    void csvQuotesOnlyWhatNeedsQuoting() throws Exception {
+        String csv = exportCsv(
+                new String[] {"García, Ana", "ana@example.com", "600000000", "ACTIVE", "-1", "2024-05-01 09:30:00"},
+                new String[] {"Ana \"la doctora\"\nPérez", "luis@example.com", null, "INACTIVE", "0", null});
+
+        assertThat(csv).isEqualTo(
+                "name,email,phone,status,totalAnalyses,createdAt\r\n" +
+                "\"García, Ana\",ana@example.com,600000000,ACTIVE,-1,2024-05-01T09:30:00\r\n" +
+                "\"Ana \"\"la doctora\"\"\nPérez\",luis@example.com,,INACTIVE,0,\r\n");
+    }
+
+    @Test
+    void textThatLooksLikeAFormulaIsPrefixed() throws Exception {
+        String csv = exportCsv(
+                new String[] {"=HYPERLINK(\"http://x\")", "ana@example.com", "+34 600 000 000", "ACTIVE", "-2", null},
+                new String[] {"@Ana", "luis@example.com", "-600", "ACTIVE", "0", null});
+
+        // Los números negativos no llevan apóstrofo: solo los textos
+        assertThat(csv.split("\r\n")).containsExactly(
+                "name,email,phone,status,totalAnalyses,createdAt",
+                "\"'=HYPERLINK(\"\"http://x\"\")\",ana@example.com,'+34 600 000 000,ACTIVE,-2,",
+                "'@Ana,luis@example.com,'-600,ACTIVE,0,");
+    }
+
+    @Test
+    void exportedCsvImportsBackToTheSameValues() throws Exception {
+        String[][] rows = {
+                {"=SUM(A1:A3)", "ana@example.com", "+34 600 000 000", "ACTIVE", "0", null},
+                {"@Ana", "luis@example.com", "-600", "INACTIVE", "1", null},
+                {"-Marta, \"la de siempre\"\nsegunda línea", "marta@example.com", "=1+1", "ACTIVE", "2", null},
+                {"+Pedro", "pedro@example.com", "@600", "ACTIVE", "3", null},
+                {"O'Brien", "obrien@example.com", "'600", "ACTIVE", "4", null}};
+        String csv = exportCsv(rows);
+
+        List<Patient> imported = new ArrayList<>();
+        PatientImportServiceTest.importService(imported).importPatients(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true, event -> { });
+
+        assertThat(imported).extracting(Patient::getName, Patient::getEmail, Patient::getPhone, Patient::getStatus)
+                .containsExactly(
+                        tuple(rows[0][0], rows[0][1], rows[0][2], Patient.PatientStatus.ACTIVE),
+                        tuple(rows[1][0], rows[1][1], rows[1][2], Patient.PatientStatus.INACTIVE),
+                        tuple(rows[2][0], rows[2][1], rows[2][2], Patient.PatientStatus.ACTIVE),
+                        tuple(rows[3][0], rows[3][1], rows[3][2], Patient.PatientStatus.ACTIVE),
+                        tuple(rows[4][0], rows[4][1], rows[4][2], Patient.PatientStatus.ACTIVE));
+    }
+
+    private String exportCsv(String[]... rows) throws SQLException {
+        ResultSet resultSet = resultSet(rows);
+        when(patientRepository.exportRows(any(), any(), any(), anyInt(), any())).thenAnswer(invocation ->
+            invocation.<ResultSetExtractor<?>>getArgument(4).extractData(resultSet));
+
+        ExportService exportService = new ExportService();
+        ReflectionTestUtils.setField(exportService, "patientRepository", patientRepository);
+        ReflectionTestUtils.setField(exportService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(exportService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(exportService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(exportService, "fetchSize", 100);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.exportPatients(null, null, null, ExportService.Format.csv, out);
+        assertThat(exported).isEqualTo(rows.length);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ResultSet resultSet(String[][] rows) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(LABELS.length);
+        when(metaData.getColumnLabel(anyInt())).thenAnswer(invocation -> LABELS[invocation.<Integer>getArgument(0) - 1]);
+        when(metaData.getColumnType(anyInt())).thenAnswer(invocation -> TYPES[invocation.<Integer>getArgument(0) - 1]);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        AtomicInteger current = new AtomicInteger(-1);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenAnswer(invocation -> current.incrementAndGet() < rows.length);
+        when(resultSet.getString(anyInt())).thenAnswer(invocation -> rows[current.get()][invocation.<Integer>getArgument(0) - 1]);
+        return resultSet;
+    }
+}
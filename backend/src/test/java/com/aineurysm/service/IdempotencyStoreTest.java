@@ -0,0 +1,191 @@
+package com.aineurysm.service;
+
+import com.aineurysm.controller.AuthController.ErrorResponse;
+import com.aineurysm.dto.AuthResponse;
+import com.aineurysm.dto.RegisterRequest;
+import com.aineurysm.dto.UserResponse;
+import com.aineurysm.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// El registro tal como lo usa AuthController: el campo "token" no se guarda y cada reintento recibe
+// uno nuevo. Sin base de datos: store = memory, o un mock del repositorio para store = database.
+class IdempotencyStoreTest {
+
+    private static final String SECRET = "clave-de-prueba";
+
+    private static final String KEY = "5f0c8a4e-registro";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final AtomicInteger issuedTokens = new AtomicInteger();
+
+    @Test
+    void replayReturnsTheOriginalResponseWithANewToken() throws Exception {
+        IdempotencyStore store = store("memory");
+
+        ResponseEntity<?> original = register(store, request("secreta"));
+        ResponseEntity<?> replayed = register(store, request("secreta"));
+
+        assertThat(executions).hasValue(1);
+        assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+        JsonNode first = json(original);
+        JsonNode second = json(replayed);
+        assertThat(first.path("token").asText()).isEqualTo("token-1");
+        assertThat(second.path("token").asText()).isEqualTo("token-2");
+        assertThat(second.path("user")).isEqualTo(first.path("user"));
+    }
+
+    @Test
+    void replayWithAnotherPasswordIsRejectedWithoutToken() throws Exception {
+        IdempotencyStore store = store("memory");
+        register(store, request("secreta"));
+
+        ResponseEntity<?> response = register(store, request("otra-contraseña"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(json(response).has("token")).isFalse();
+        assertThat(executions).hasValue(1);
+        assertThat(issuedTokens).hasValue(1);
+    }
+
+    @Test
+    void retryWhileTheOriginalIsRunningGetsConflictWithoutToken() throws Exception {
+        IdempotencyStore store = store("memory");
+        AtomicReference<ResponseEntity<?>> concurrent = new AtomicReference<>();
+
+        // El reintento llega mientras la petición original todavía se ejecuta
+        store.execute("register", "ana@example.com", KEY, request("secreta"), () -> {
+            concurrent.set(register(store, request("secreta")));
+            return ResponseEntity.ok(response());
+        }, "token", stored -> reissue());
+
+        assertThat(concurrent.get().getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(json(concurrent.get()).has("token")).isFalse();
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void failedResponseIsNotStoredAndTheRetryRunsAgain() {
+        IdempotencyStore store = store("memory");
+
+        ResponseEntity<?> failed = store.execute("register", "ana@example.com", KEY, request("secreta"),
+            () -> ResponseEntity.badRequest().body(new ErrorResponse(false, "Las contraseñas no coinciden")),
+            "token", stored -> reissue());
+        assertThatThrownBy(() -> store.execute("register", "ana@example.com", KEY, request("secreta"),
+            () -> { throw new IllegalStateException("Base de datos caída"); }, "token", stored -> reissue()))
+                .isInstanceOf(IllegalStateException.class);
+        ResponseEntity<?> retried = register(store, request("secreta"));
+
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retried.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void databaseStoreReleasesFailuresAndNeverStoresTheToken() throws Exception {
+        IdempotencyStore store = store("database");
+        when(repository.claim(anyString(), anyString(), any(), any())).thenReturn(1);
+        String id = "register:ana@example.com:" + KEY;
+
+        store.execute("register", "ana@example.com", KEY, request("secreta"),
+            () -> ResponseEntity.badRequest().body(new ErrorResponse(false, "El email ya está registrado")),
+            "token", stored -> reissue());
+        verify(repository).release(id);
+        verify(repository, never()).complete(anyString(), anyInt(), anyString(), any());
+
+        register(store, request("secreta"));
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(repository).complete(eq(id), eq(200), body.capture(), any());
+        assertThat(objectMapper.readTree(body.getValue()).has("token")).isFalse();
+        assertThat(body.getValue()).doesNotContain("token-1");
+    }
+
+    @Test
+    void requestHashDoesNotUseTheJwtSecretAsKey() throws Exception {
+        IdempotencyStore store = store("database");
+        when(repository.claim(anyString(), anyString(), any(), any())).thenReturn(1);
+        RegisterRequest request = request("secreta");
+
+        register(store, request);
+
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        verify(repository).claim(anyString(), hash.capture(), any(), any());
+        byte[] body = objectMapper.writeValueAsBytes(request);
+        byte[] derivedKey = hmac(SECRET.getBytes(StandardCharsets.UTF_8),
+                "idempotency-request-hash".getBytes(StandardCharsets.UTF_8));
+        assertThat(hash.getValue())
+                .isNotEqualTo(HexFormat.of().formatHex(hmac(SECRET.getBytes(StandardCharsets.UTF_8), body)))
+                .isEqualTo(HexFormat.of().formatHex(hmac(derivedKey, body)));
+    }
+
+    private IdempotencyStore store(String type) {
+        IdempotencyStore store = new IdempotencyStore(objectMapper, new SimpleMeterRegistry(), type,
+                60_000, 60_000, 1_000, SECRET);
+        ReflectionTestUtils.setField(store, "recordRepository", repository);
+        return store;
+    }
+
+    private ResponseEntity<?> register(IdempotencyStore store, RegisterRequest request) {
+        return store.execute("register", request.getEmail(), KEY, request, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(response());
+        }, "token", stored -> reissue());
+    }
+
+    private AuthResponse response() {
+        UserResponse user = new UserResponse();
+        user.setEmail("ana@example.com");
+        user.setName("Ana");
+        return new AuthResponse(true, "Usuario registrado exitosamente", user, reissue());
+    }
+
+    private String reissue() {
+        return "token-" + issuedTokens.incrementAndGet();
+    }
+
+    private static RegisterRequest request(String password) {
+        return new RegisterRequest("Ana", "ana@example.com", password, password, "patient");
+    }
+
+    private JsonNode json(ResponseEntity<?> response) throws Exception {
+        Object body = response.getBody();
+        return body instanceof String text ? objectMapper.readTree(text) : objectMapper.valueToTree(body);
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data);
+    }
+}
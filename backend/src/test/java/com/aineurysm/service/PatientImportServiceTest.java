@@ -0,0 +1,131 @@
+package com.aineurysm.service;
+
+import com.aineurysm.dto.PatientImportEvent;
+import com.aineurysm.model.Patient;
+import com.aineurysm.repository.PatientRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Lector CSV de /api/patients/import sin base de datos: el repositorio es un mock que guarda
+// cada lote en inserted y devuelve todas sus filas como insertadas.
+class PatientImportServiceTest {
+
+    private final List<Patient> inserted = new ArrayList<>();
+
+    private final List<PatientImportEvent> events = new ArrayList<>();
+
+    private final PatientImportService importService = importService(inserted);
+
+    @Test
+    void quotedFieldsKeepCommasAndLineBreaks() throws IOException {
+        PatientImportEvent summary = importCsv(
+                "name,email,phone\n" +
+                "\"García, Ana\",ana@example.com,600000000\n" +
+                "\"Luis\nsegunda línea\",luis@example.com,\"600,000\"\n" +
+                "Marta,no-es-un-email,600000001\n");
+
+        assertThat(inserted).extracting(Patient::getName, Patient::getEmail, Patient::getPhone).containsExactly(
+                tuple("García, Ana", "ana@example.com", "600000000"),
+                tuple("Luis\nsegunda línea", "luis@example.com", "600,000"));
+        // El salto de línea entre comillas cuenta: la fila de Marta empieza en la línea 5
+        assertThat(errors()).containsExactly("5: Email inválido: no-es-un-email");
+        assertThat(summary.getProcessed()).isEqualTo(3L);
+        assertThat(summary.getInserted()).isEqualTo(2L);
+    }
+
+    @Test
+    void doubledQuoteIsAnEscapedQuote() throws IOException {
+        importCsv("name,email,phone,status\n" +
+                "\"Ana \"\"la doctora\"\" Pérez\",ana@example.com,\"\"\"600\"\"\",\"\"\n");
+
+        assertThat(inserted).singleElement().satisfies(patient -> {
+            assertThat(patient.getName()).isEqualTo("Ana \"la doctora\" Pérez");
+            assertThat(patient.getPhone()).isEqualTo("\"600\"");
+            // "" es un campo vacío: estado por defecto
+            assertThat(patient.getStatus()).isEqualTo(Patient.PatientStatus.ACTIVE);
+        });
+    }
+
+    @Test
+    void byteOrderMarkBeforeTheHeaderIsSkipped() throws IOException {
+        importCsv("\uFEFF\"name\",\"email\",\"phone\"\r\nAna,ana@example.com,600000000\r\n");
+        importCsv("\uFEFFname,email,phone\r\nLuis,luis@example.com,600000001\r\n");
+
+        assertThat(errors()).isEmpty();
+        assertThat(inserted).extracting(Patient::getName).containsExactly("Ana", "Luis");
+        assertThat(inserted).extracting(Patient::getPhone).containsExactly("600000000", "600000001");
+    }
+
+    @Test
+    void unterminatedQuoteAtEndOfFileKeepsWhatWasRead() throws IOException {
+        PatientImportEvent summary = importCsv("name,email,phone\nAna,ana@example.com,\"600 000");
+
+        assertThat(summary.getAborted()).isFalse();
+        assertThat(inserted).extracting(Patient::getPhone).containsExactly("600 000");
+    }
+
+    @Test
+    void apostropheIsRemovedOnlyBeforeFormulaCharacters() throws IOException {
+        importCsv("name,email,phone\n" +
+                "'=Ana,ana@example.com,'+34 600 000 000\n" +
+                "'Ana',luis@example.com,'-600\n" +
+                "O'Brien,marta@example.com,'@600\n");
+
+        assertThat(inserted).extracting(Patient::getName, Patient::getPhone).containsExactly(
+                tuple("=Ana", "+34 600 000 000"),
+                tuple("'Ana'", "-600"),
+                tuple("O'Brien", "@600"));
+    }
+
+    @Test
+    void headerWithoutRequiredColumnsAbortsTheImport() throws IOException {
+        PatientImportEvent summary = importCsv("nombre,email,phone\nAna,ana@example.com,600000000\n");
+
+        assertThat(summary.getAborted()).isTrue();
+        assertThat(inserted).isEmpty();
+        assertThat(events).singleElement().extracting(PatientImportEvent::getMessage).asString().contains("name, email y phone");
+    }
+
+    private PatientImportEvent importCsv(String csv) throws IOException {
+        return importService.importPatients(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true, events::add);
+    }
+
+    private List<String> errors() {
+        return events.stream()
+                .filter(event -> PatientImportEvent.ERROR.equals(event.getType()))
+                .map(event -> event.getLine() + ": " + event.getMessage())
+                .toList();
+    }
+
+    // También la usa ExportServiceTest para leer lo exportado
+    static PatientImportService importService(List<Patient> inserted) {
+        PatientRepository repository = mock(PatientRepository.class);
+        when(repository.insertSkippingExistingEmails(anyList())).thenAnswer(invocation -> {
+            List<Patient> batch = invocation.getArgument(0);
+            inserted.addAll(batch);
+            return batch.size();
+        });
+        PatientImportService service = new PatientImportService();
+        ReflectionTestUtils.setField(service, "patientRepository", repository);
+        ReflectionTestUtils.setField(service, "patientService", mock(PatientService.class));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "maxErrors", 10);
+        return service;
+    }
+}
@@ -0,0 +1,148 @@
+package com.aineurysm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, 10_000);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("stats", 0, () -> {
+                executions.incrementAndGet();
+                await(release);
+                return "resultado";
+            })));
+        }
+        // Hasta que todos los demás se han unido a la consulta en curso
+        awaitCount("stats", "shared", CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("resultado");
+        }
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndIsNotKept() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, 10_000);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("stats", 60_000, () -> {
+                executions.incrementAndGet();
+                await(release);
+                throw new IllegalStateException("Base de datos caída");
+            })));
+        }
+        awaitCount("stats", "shared", CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("Base de datos caída");
+        }
+        assertThat(executions).hasValue(1);
+
+        // Aunque haya freshness, la siguiente llamada vuelve a consultar
+        assertThat(singleFlight.execute("stats", 60_000, () -> "recuperado")).isEqualTo("recuperado");
+    }
+
+    @Test
+    void resultIsReusedOnlyWithinFreshness() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, 10_000);
+        AtomicInteger executions = new AtomicInteger();
+
+        assertThat(singleFlight.execute("doctors", 200, executions::incrementAndGet)).isEqualTo(1);
+        assertThat(singleFlight.execute("doctors", 200, executions::incrementAndGet)).isEqualTo(1);
+        Thread.sleep(250);
+        assertThat(singleFlight.execute("doctors", 200, executions::incrementAndGet)).isEqualTo(2);
+
+        // Sin freshness cada llamada secuencial consulta
+        assertThat(singleFlight.execute("stats", 0, executions::incrementAndGet)).isEqualTo(3);
+        assertThat(singleFlight.execute("stats", 0, executions::incrementAndGet)).isEqualTo(4);
+    }
+
+    @Test
+    void invalidateDiscardsAFreshResult() {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, 10_000);
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("doctors", 60_000, executions::incrementAndGet);
+        singleFlight.invalidate("doctors");
+
+        assertThat(singleFlight.execute("doctors", 60_000, executions::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void waiterRunsItsOwnQueryAfterWaitTimeout() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(meterRegistry, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = executor.submit(() -> singleFlight.execute("stats", 0, () -> {
+            await(release);
+            return "lenta";
+        }));
+        awaitCount("stats", "executed", 1);
+
+        long start = System.nanoTime();
+        assertThat(singleFlight.execute("stats", 0, () -> "propia")).isEqualTo("propia");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(100);
+        assertThat(meterRegistry.counter("single.flight.calls", "key", "stats", "outcome", "timeout").count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(slow.get(10, TimeUnit.SECONDS)).isEqualTo("lenta");
+    }
+
+    private void awaitCount(String key, String outcome, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.counter("single.flight.calls", "key", key, "outcome", outcome).count() < expected) {
+            assertThat(System.currentTimeMillis()).as("llamadas %s", outcome).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.aineurysm.service;
+
+import com.aineurysm.model.Appointment;
+import com.aineurysm.repository.AppointmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Bitset de horarios sin base de datos: DaySlots directamente y el índice con un mock del repositorio
+class SlotAvailabilityIndexTest {
+
+    private static final int THREADS = 16;
+
+    private static final LocalDate DATE = LocalDate.of(2024, 5, 1);
+
+    @Test
+    void claimTakesAFreeSlotOnlyOnceUntilReleased() {
+        SlotAvailabilityIndex.DaySlots slots = new SlotAvailabilityIndex.DaySlots(288);
+
+        assertThat(slots.claim(10)).isTrue();
+        assertThat(slots.isTaken(10)).isTrue();
+        assertThat(slots.claim(10)).isFalse();
+
+        slots.release(10);
+        assertThat(slots.isTaken(10)).isFalse();
+        assertThat(slots.claim(10)).isTrue();
+    }
+
+    @Test
+    void slotsAtWordBoundariesAreIndependent() {
+        // 288 bloques de 5 minutos: cinco palabras de 64 bits
+        SlotAvailabilityIndex.DaySlots slots = new SlotAvailabilityIndex.DaySlots(288);
+
+        for (int slot : new int[] {0, 63, 64, 127, 128, 287}) {
+            assertThat(slots.claim(slot)).as("bloque %d", slot).isTrue();
+        }
+        for (int slot : new int[] {1, 62, 65, 126, 129, 286}) {
+            assertThat(slots.isTaken(slot)).as("bloque %d", slot).isFalse();
+        }
+
+        slots.release(64);
+        assertThat(slots.isTaken(63)).isTrue();
+        assertThat(slots.isTaken(64)).isFalse();
+        assertThat(slots.isTaken(127)).isTrue();
+        // mark sobre un bloque ya ocupado no lo libera ni toca los vecinos
+        slots.mark(63);
+        slots.mark(64);
+        assertThat(slots.isTaken(63)).isTrue();
+        assertThat(slots.isTaken(64)).isTrue();
+        assertThat(slots.isTaken(65)).isFalse();
+    }
+
+    @Test
+    void concurrentClaimsOfOneSlotHaveASingleWinner() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            SlotAvailabilityIndex.DaySlots slots = new SlotAvailabilityIndex.DaySlots(24);
+            List<Boolean> results = claimConcurrently(slots, i -> 7);
+            assertThat(results).as("ronda %d", round).containsOnlyOnce(true);
+        }
+    }
+
+    @Test
+    void concurrentClaimsOfDifferentSlotsInOneWordAllSucceed() throws Exception {
+        // Todos compiten por el CAS de la misma palabra: los que fallan deben reintentar, no rendirse
+        for (int round = 0; round < 50; round++) {
+            SlotAvailabilityIndex.DaySlots slots = new SlotAvailabilityIndex.DaySlots(64);
+            List<Boolean> results = claimConcurrently(slots, i -> i * 4);
+            assertThat(results).as("ronda %d", round).containsOnly(true);
+            for (int i = 0; i < THREADS; i++) {
+                assertThat(slots.isTaken(i * 4)).isTrue();
+                assertThat(slots.isTaken(i * 4 + 1)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void indexLoadsBookedTimesOnceAndClaimsAgainstThem() {
+        AppointmentRepository repository = mock(AppointmentRepository.class);
+        when(repository.findBookedTimes(anyLong(), any(), anyCollection())).thenReturn(List.of(LocalTime.of(9, 0)));
+        SlotAvailabilityIndex index = new SlotAvailabilityIndex(30, 100, 60_000);
+        ReflectionTestUtils.setField(index, "appointmentRepository", repository);
+
+        assertThat(index.isAvailable(1L, DATE, LocalTime.of(9, 0))).isFalse();
+        assertThat(index.tryClaim(1L, DATE, LocalTime.of(9, 0))).isFalse();
+        assertThat(index.tryClaim(1L, DATE, LocalTime.of(9, 30))).isTrue();
+        assertThat(index.tryClaim(1L, DATE, LocalTime.of(9, 30))).isFalse();
+
+        index.release(1L, DATE, LocalTime.of(9, 30));
+        assertThat(index.isAvailable(1L, DATE, LocalTime.of(9, 30))).isTrue();
+        // Otro médico el mismo día tiene su propio bitset
+        assertThat(index.tryClaim(2L, DATE, LocalTime.of(9, 30))).isTrue();
+
+        verify(repository, times(1)).findBookedTimes(1L, DATE, Appointment.AppointmentStatus.activeStatuses());
+        assertThat(index.isAligned(LocalTime.of(9, 30))).isTrue();
+        assertThat(index.isAligned(LocalTime.of(9, 15))).isFalse();
+    }
+
+    @Test
+    void slotMinutesMustDivideTheDay() {
+        assertThatThrownBy(() -> new SlotAvailabilityIndex(7, 100, 60_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Boolean> claimConcurrently(SlotAvailabilityIndex.DaySlots slots,
+                                                   IntUnaryOperator slotOf) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int slot = slotOf.applyAsInt(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return slots.claim(slot);
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
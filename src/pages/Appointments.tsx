@@ -1,5 +1,5 @@
 
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { Button } from "@/components/ui/button";
 import { Card, CardContent, CardDescription, CardHeader, CardTitle } from "@/components/ui/card";
@@ -14,6 +14,8 @@ const Appointments = () => {
   const [appointments, setAppointments] = useState<any[]>([]);
   const [doctors, setDoctors] = useState<any[]>([]);
   const [loading, setLoading] = useState(false);
+  // Token del último listado o sincronización; tras una reconexión se piden solo los cambios
+  const syncToken = useRef<string | null>(null);
   const navigate = useNavigate();
   const { toast } = useToast();
 
@@ -33,6 +35,7 @@ const Appointments = () => {
 
         if (appointmentsResponse.success) {
           setAppointments(appointmentsResponse.data);
+          syncToken.current = appointmentsResponse.syncToken ?? null;
         }
 
         if (doctorsResponse && Array.isArray(doctorsResponse)) {
@@ -51,8 +54,46 @@ const Appointments = () => {
     };
 
     loadData();
+
+    // Cambios hechos por el administrador o el médico se reflejan sin recargar la lista
+    return appointmentService.subscribeToEvents((type, event) => {
+      if (type === 'created') {
+        setAppointments(prev => prev.some(apt => apt.id === event.id)
+          ? prev
+          : [...prev, event.appointment]);
+      } else {
+        setAppointments(prev => prev.map(apt => apt.id === event.id
+          ? { ...apt, status: event.status, version: event.version }
+          : apt));
+      }
+    }, syncChanges);
   }, []);
 
+  // Aplica los cambios desde el último token; si el token expiró (410) recarga el listado completo
+  const syncChanges = async () => {
+    try {
+      if (!syncToken.current) throw new Error('Sin token de sincronización');
+      let hasMore = true;
+      while (hasMore) {
+        const response = await appointmentService.getAppointmentChanges(syncToken.current);
+        const changed = new Map(response.data.map((apt: any) => [apt.id, apt]));
+        const deleted = new Set(response.deleted);
+        setAppointments(prev => [
+          ...prev.filter(apt => !changed.has(apt.id) && !deleted.has(apt.id)),
+          ...changed.values(),
+        ]);
+        syncToken.current = response.syncToken;
+        hasMore = response.hasMore;
+      }
+    } catch (error) {
+      const response = await appointmentService.getAllAppointments();
+      if (response.success) {
+        setAppointments(response.data);
+        syncToken.current = response.syncToken ?? null;
+      }
+    }
+  };
+
   const handleScheduleAppointment = async () => {
     if (!selectedDate || !selectedTime || !selectedDoctor) {
       toast({
@@ -68,8 +109,7 @@ const Appointments = () => {
       const appointmentData = {
         date: selectedDate,
         time: selectedTime,
-        doctorName: doctor?.name || '',
-        doctorSpecialty: doctor?.role || 'Especialista',
+        doctorId: Number(selectedDoctor),
         patientName: 'Usuario' // Esto debería venir del contexto de usuario
       };
 
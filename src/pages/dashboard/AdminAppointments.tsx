@@ -28,6 +28,7 @@ import {
   User,
   Stethoscope
 } from 'lucide-react';
+import { appointmentService } from '@/services/api';
 
 interface Appointment {
   id: number;
@@ -38,9 +39,13 @@ interface Appointment {
   patientName: string;
   patientEmail: string;
   status: 'pending' | 'approved' | 'rejected' | 'cancelled' | 'completed' | 'reschedule_requested';
+  version?: number;
   createdAt: string;
 }
 
+// Estados que se muestran en la cola del administrador
+const QUEUE_STATUSES = ['pending', 'reschedule_requested'];
+
 const AdminAppointments = () => {
   const [appointments, setAppointments] = useState<Appointment[]>([]);
   const [selectedAppointment, setSelectedAppointment] = useState<Appointment | null>(null);
@@ -48,25 +53,39 @@ const AdminAppointments = () => {
   const { toast } = useToast();
 
   useEffect(() => {
-    fetchAppointments();
-    fetchRescheduleRequests();
+    const reload = async () => {
+      await fetchAppointments();
+      fetchRescheduleRequests();
+    };
+    reload();
+
+    // Altas y cambios de estado llegan por el canal de eventos en lugar de recargar la cola
+    return appointmentService.subscribeToEvents((type, event) => {
+      if (type === 'created') {
+        setAppointments(prev => prev.some(apt => apt.id === event.id)
+          ? prev
+          : [...prev, event.appointment]);
+      } else if (QUEUE_STATUSES.includes(event.status)) {
+        // Una cita que vuelve a la cola (p. ej. reprogramación) se recarga completa
+        setAppointments(prev => prev.map(apt => apt.id === event.id
+          ? { ...apt, status: event.status, version: event.version }
+          : apt));
+        if (event.status === 'reschedule_requested') {
+          reload();
+        }
+      } else {
+        setAppointments(prev => prev.filter(apt => apt.id !== event.id));
+      }
+    }, reload);
   }, []);
 
   const fetchAppointments = async () => {
     try {
       setLoading(true);
-      const response = await fetch('http://localhost:3000/api/appointments/pending', {
-        headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
-          'Content-Type': 'application/json'
-        }
-      });
-
-      if (response.ok) {
-        const data = await response.json();
-        if (data.success) {
-          setAppointments(data.data);
-        }
+      // La cola llega paginada: getPendingAppointments recorre todas las páginas
+      const data = await appointmentService.getPendingAppointments();
+      if (data.success) {
+        setAppointments(data.data);
       } else {
         toast({
           title: "Error",
@@ -87,19 +106,10 @@ const AdminAppointments = () => {
 
   const fetchRescheduleRequests = async () => {
     try {
-      const response = await fetch('http://localhost:3000/api/appointments/reschedule-requests', {
-        headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`,
-          'Content-Type': 'application/json'
-        }
-      });
-
-      if (response.ok) {
-        const data = await response.json();
-        if (data.success) {
-          // Agregar las solicitudes de reprogramación a la lista
-          setAppointments(prev => [...prev, ...data.data]);
-        }
+      const data = await appointmentService.getRescheduleRequests();
+      if (data.success) {
+        // Agregar las solicitudes de reprogramación a la lista
+        setAppointments(prev => [...prev, ...data.data]);
       }
     } catch (error) {
       console.error('Error al cargar solicitudes de reprogramación:', error);
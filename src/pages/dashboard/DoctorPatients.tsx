@@ -46,12 +46,19 @@ interface Patient {
   lastAnalysisResult: 'normal' | 'abnormal' | 'pending';
 }
 
+// Pacientes por página: el servidor pagina y busca, la tabla solo muestra la página actual
+const PAGE_SIZE = 50;
+
 const DoctorPatients = () => {
   const [patients, setPatients] = useState<Patient[]>([]);
+  // null en las búsquedas: el servidor no cuenta las coincidencias, solo indica si hay más
+  const [totalMatches, setTotalMatches] = useState<number | null>(0);
+  const [hasNext, setHasNext] = useState(false);
+  const [page, setPage] = useState(0);
+  const [stats, setStats] = useState<any>(null);
   const [appointments, setAppointments] = useState<any[]>([]);
   const [currentUser, setCurrentUser] = useState<any>(null);
   const [searchTerm, setSearchTerm] = useState('');
-  const [filteredPatients, setFilteredPatients] = useState<Patient[]>([]);
   const [selectedPatient, setSelectedPatient] = useState<Patient | null>(null);
   const [loading, setLoading] = useState(true);
   const { toast } = useToast();
@@ -66,15 +73,14 @@ const DoctorPatients = () => {
         const userResponse = await userService.getCurrentUserProfile();
         setCurrentUser(userResponse);
         
-        // Obtener pacientes y citas del doctor en paralelo
-        const [patientsResponse, appointmentsResponse] = await Promise.all([
-          patientService.getAllPatients(),
-          appointmentService.getAppointmentsByDoctor(userResponse.name)
+        // Estadísticas y citas del doctor en paralelo; los pacientes se cargan por páginas
+        const [statsResponse, appointmentsResponse] = await Promise.all([
+          patientService.getPatientStats(),
+          appointmentService.getAppointmentsByDoctor(userResponse.id)
         ]);
         
-        if (patientsResponse.success) {
-          setPatients(patientsResponse.data);
-          setFilteredPatients(patientsResponse.data);
+        if (statsResponse.success) {
+          setStats(statsResponse.data);
         }
         
         if (appointmentsResponse.success) {
@@ -94,14 +100,24 @@ const DoctorPatients = () => {
     fetchData();
   }, []);
 
-  // Filtrar pacientes
+  // Página actual de pacientes; la búsqueda la hace el servidor, con una pausa mientras se escribe
   useEffect(() => {
-    const filtered = patients.filter(patient => 
-      patient.name.toLowerCase().includes(searchTerm.toLowerCase()) ||
-      patient.email.toLowerCase().includes(searchTerm.toLowerCase())
-    );
-    setFilteredPatients(filtered);
-  }, [patients, searchTerm]);
+    const timer = setTimeout(async () => {
+      try {
+        const response = await patientService.getAllPatients(searchTerm.trim(), page, PAGE_SIZE);
+        if (response.success) {
+          setPatients(response.data);
+          setTotalMatches(response.total ?? null);
+          setHasNext(Boolean(response.hasNext));
+        }
+      } catch (error) {
+        console.error('Error al cargar pacientes:', error);
+      }
+    }, searchTerm ? 300 : 0);
+    return () => clearTimeout(timer);
+  }, [searchTerm, page]);
+
+  const totalPages = totalMatches !== null ? Math.max(1, Math.ceil(totalMatches / PAGE_SIZE)) : null;
 
   const getStatusBadge = (status: string) => {
     return status === 'active' ? (
@@ -141,7 +157,7 @@ const DoctorPatients = () => {
             <Users className="h-4 w-4 text-muted-foreground" />
           </CardHeader>
           <CardContent>
-            <div className="text-2xl font-bold">{patients.length}</div>
+            <div className="text-2xl font-bold">{stats?.totalPatients ?? '-'}</div>
           </CardContent>
         </Card>
 
@@ -152,7 +168,7 @@ const DoctorPatients = () => {
           </CardHeader>
           <CardContent>
             <div className="text-2xl font-bold">
-              {patients.filter(p => p.status === 'active').length}
+              {stats?.activePatients ?? '-'}
             </div>
           </CardContent>
         </Card>
@@ -164,7 +180,7 @@ const DoctorPatients = () => {
           </CardHeader>
           <CardContent>
             <div className="text-2xl font-bold">
-              {patients.filter(p => p.lastAnalysisResult === 'pending').length}
+              {stats?.pendingAnalyses ?? '-'}
             </div>
           </CardContent>
         </Card>
@@ -222,7 +238,7 @@ const DoctorPatients = () => {
                           try {
                             await appointmentService.requestReschedule(appointment.id);
                             // Actualizar citas después de solicitar reprogramación
-                            const response = await appointmentService.getAppointmentsByDoctor(currentUser?.name || '');
+                            const response = await appointmentService.getAppointmentsByDoctor(currentUser?.id);
                             if (response.success) {
                               const approvedAppointments = response.data.filter(
                                 (apt: any) => apt.status === 'approved'
@@ -271,7 +287,10 @@ const DoctorPatients = () => {
               placeholder="Buscar por nombre o email..."
               className="pl-8"
               value={searchTerm}
-              onChange={(e) => setSearchTerm(e.target.value)}
+              onChange={(e) => {
+                setSearchTerm(e.target.value);
+                setPage(0);
+              }}
             />
           </div>
         </CardContent>
@@ -282,7 +301,9 @@ const DoctorPatients = () => {
         <CardHeader>
           <CardTitle>Lista de Pacientes</CardTitle>
           <CardDescription>
-            {filteredPatients.length} pacientes encontrados
+            {totalMatches !== null
+              ? `${totalMatches} pacientes encontrados`
+              : `${page * PAGE_SIZE + patients.length}${hasNext ? '+' : ''} pacientes encontrados`}
           </CardDescription>
         </CardHeader>
         <CardContent>
@@ -299,7 +320,7 @@ const DoctorPatients = () => {
               </TableRow>
             </TableHeader>
             <TableBody>
-              {filteredPatients.map((patient) => (
+              {patients.map((patient) => (
                 <TableRow key={patient.id}>
                   <TableCell className="font-medium">{patient.name}</TableCell>
                   <TableCell>{patient.email}</TableCell>
@@ -422,6 +443,29 @@ const DoctorPatients = () => {
               ))}
             </TableBody>
           </Table>
+          {(page > 0 || hasNext) && (
+            <div className="flex items-center justify-end gap-2 pt-4">
+              <span className="text-sm text-muted-foreground">
+                Página {page + 1}{totalPages !== null ? ` de ${totalPages}` : ''}
+              </span>
+              <Button
+                variant="outline"
+                size="sm"
+                disabled={page === 0}
+                onClick={() => setPage(page - 1)}
+              >
+                Anterior
+              </Button>
+              <Button
+                variant="outline"
+                size="sm"
+                disabled={!hasNext}
+                onClick={() => setPage(page + 1)}
+              >
+                Siguiente
+              </Button>
+            </div>
+          )}
         </CardContent>
       </Card>
     </div>
@@ -1,6 +1,22 @@
 // Configuración base de la API
 const API_BASE_URL = 'http://localhost:3000/api';
 
+// Reintenta un POST con Idempotency-Key si falla la red o la primera petición sigue en curso (409):
+// el servidor no lo ejecuta dos veces y devuelve la respuesta original si ya terminó
+const fetchWithRetry = async (url: string, config: RequestInit, retries = 2): Promise<Response> => {
+  for (let attempt = 0; ; attempt++) {
+    try {
+      const response = await fetch(url, config);
+      if (response.status !== 409 || attempt >= retries) {
+        return response;
+      }
+    } catch (error) {
+      if (attempt >= retries) throw error;
+    }
+    await new Promise(resolve => setTimeout(resolve, 1000 * (attempt + 1)));
+  }
+};
+
 // Función helper para hacer requests con token
 const apiRequest = async (endpoint: string, options: RequestInit = {}) => {
   const token = localStorage.getItem('token');
@@ -14,7 +30,10 @@ const apiRequest = async (endpoint: string, options: RequestInit = {}) => {
     },
   };
 
-  const response = await fetch(`${API_BASE_URL}${endpoint}`, config);
+  const idempotent = Boolean((options.headers as Record<string, string> | undefined)?.['Idempotency-Key']);
+  const response = idempotent
+    ? await fetchWithRetry(`${API_BASE_URL}${endpoint}`, config)
+    : await fetch(`${API_BASE_URL}${endpoint}`, config);
   
   if (!response.ok) {
     throw new Error(`Error ${response.status}: ${response.statusText}`);
@@ -23,6 +42,56 @@ const apiRequest = async (endpoint: string, options: RequestInit = {}) => {
   return response.json();
 };
 
+// Listados paginados por cursor: sigue nextCursor hasta la última página y devuelve la primera
+// respuesta (con su syncToken) con los datos de todas las páginas
+const apiRequestAllPages = async (endpoint: string) => {
+  const first = await apiRequest(endpoint);
+  let cursor = first.success ? first.nextCursor : null;
+  const data = first.success ? [...first.data] : [];
+  const separator = endpoint.includes('?') ? '&' : '?';
+  while (cursor) {
+    const page = await apiRequest(`${endpoint}${separator}cursor=${encodeURIComponent(cursor)}`);
+    if (!page.success) return page;
+    data.push(...page.data);
+    cursor = page.nextCursor;
+  }
+  return first.success ? { ...first, data, nextCursor: null } : first;
+};
+
+// Descarga un fichero de /export (CSV o NDJSON, opcionalmente .gz) con el nombre que propone el servidor
+export interface ExportParams {
+  format?: 'csv' | 'ndjson';
+  from?: string;
+  to?: string;
+  status?: string;
+  gzip?: boolean;
+}
+
+const downloadExport = async (endpoint: string, params: ExportParams) => {
+  const query = new URLSearchParams();
+  Object.entries(params).forEach(([key, value]) => {
+    if (value !== undefined && value !== null && value !== '') {
+      query.append(key, String(value));
+    }
+  });
+  const token = localStorage.getItem('token');
+  const response = await fetch(`${API_BASE_URL}${endpoint}?${query.toString()}`, {
+    headers: token ? { Authorization: `Bearer ${token}` } : {},
+  });
+  if (!response.ok) {
+    throw new Error(`Error ${response.status}: ${response.statusText}`);
+  }
+
+  const disposition = response.headers.get('Content-Disposition') || '';
+  const fileName = /filename="([^"]+)"/.exec(disposition)?.[1] || 'export';
+  const url = URL.createObjectURL(await response.blob());
+  const link = document.createElement('a');
+  link.href = url;
+  link.download = fileName;
+  link.click();
+  URL.revokeObjectURL(url);
+};
+
 // Servicios de autenticación
 export const authService = {
   login: async (email: string, password: string) => {
@@ -41,10 +110,11 @@ export const authService = {
     specialty?: string;
   }) => {
     // Para registro, no incluir token de autorización
-    const response = await fetch(`${API_BASE_URL}/auth/register`, {
+    const response = await fetchWithRetry(`${API_BASE_URL}/auth/register`, {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
+        'Idempotency-Key': crypto.randomUUID(),
       },
       body: JSON.stringify(userData),
     });
@@ -104,9 +174,14 @@ export const userService = {
 
 // Servicios de pacientes
 export const patientService = {
-  getAllPatients: async (search?: string) => {
-    const queryParam = search ? `?search=${encodeURIComponent(search)}` : '';
-    return apiRequest(`/patients${queryParam}`);
+  // Una página de pacientes (por defecto 50) con hasNext; total solo sin búsqueda (las búsquedas no cuentan)
+  getAllPatients: async (search?: string, page?: number, size?: number) => {
+    const query = new URLSearchParams();
+    if (search) query.append('search', search);
+    if (page !== undefined) query.append('page', String(page));
+    if (size !== undefined) query.append('size', String(size));
+    const queryString = query.toString();
+    return apiRequest(`/patients${queryString ? `?${queryString}` : ''}`);
   },
 
   getPatientById: async (id: number) => {
@@ -117,6 +192,58 @@ export const patientService = {
     return apiRequest('/patients/stats');
   },
 
+  // Pacientes creados, modificados o borrados desde el syncToken de una respuesta anterior
+  getPatientChanges: async (since: string, size?: number) => {
+    const sizeParam = size ? `&size=${size}` : '';
+    return apiRequest(`/patients?since=${encodeURIComponent(since)}${sizeParam}`);
+  },
+
+  // Alta masiva desde un fichero CSV (cabecera name,email,phone[,status]) o NDJSON. La respuesta
+  // llega por líneas mientras se importa: onEvent recibe cada error de fila y el progreso por lote;
+  // devuelve el resumen final
+  importPatients: async (file: File, onEvent?: (event: any) => void) => {
+    const token = localStorage.getItem('token');
+    const response = await fetch(`${API_BASE_URL}/patients/import`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': file.name.toLowerCase().endsWith('.csv') ? 'text/csv' : 'application/x-ndjson',
+        ...(token && { Authorization: `Bearer ${token}` }),
+      },
+      body: file,
+    });
+    if (!response.ok || !response.body) {
+      throw new Error(`Error ${response.status}: ${response.statusText}`);
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    let summary: any = null;
+    while (true) {
+      const { value, done } = await reader.read();
+      if (done) break;
+      buffer += decoder.decode(value, { stream: true });
+      let newline;
+      while ((newline = buffer.indexOf('\n')) >= 0) {
+        const line = buffer.slice(0, newline).trim();
+        buffer = buffer.slice(newline + 1);
+        if (!line) continue;
+        const event = JSON.parse(line);
+        if (event.type === 'summary') {
+          summary = event;
+        } else if (onEvent) {
+          onEvent(event);
+        }
+      }
+    }
+    return summary;
+  },
+
+  // Exportación para informes (solo administradores); status es ACTIVE o INACTIVE
+  exportPatients: async (params: ExportParams = {}) => {
+    return downloadExport('/patients/export', params);
+  },
+
   createPatient: async (patientData: {
     name: string;
     email: string;
@@ -133,55 +260,211 @@ export const patientService = {
 // Servicios de citas
 export const appointmentService = {
   getAllAppointments: async () => {
-    return apiRequest('/appointments');
+    return apiRequestAllPages('/appointments');
   },
 
-  getAppointmentsByDoctor: async (doctorName: string) => {
-    return apiRequest(`/appointments/doctor/${encodeURIComponent(doctorName)}`);
+  // Citas creadas, modificadas o borradas desde el syncToken de una respuesta anterior
+  getAppointmentChanges: async (since: string, limit?: number) => {
+    const limitParam = limit ? `&limit=${limit}` : '';
+    return apiRequest(`/appointments?since=${encodeURIComponent(since)}${limitParam}`);
+  },
+
+  getAppointmentsByDoctor: async (doctorId: number) => {
+    return apiRequestAllPages(`/appointments/doctor/${doctorId}`);
   },
 
   getPendingAppointments: async () => {
-    return apiRequest('/appointments/pending');
+    return apiRequestAllPages('/appointments/pending');
+  },
+
+  getAvailability: async (params: {
+    doctorId?: number;
+    specialty?: string;
+    from?: string;
+    to?: string;
+    limit?: number;
+  } = {}) => {
+    const query = new URLSearchParams();
+    Object.entries(params).forEach(([key, value]) => {
+      if (value !== undefined && value !== null && value !== '') {
+        query.append(key, String(value));
+      }
+    });
+    const queryString = query.toString();
+    return apiRequest(`/appointments/availability${queryString ? `?${queryString}` : ''}`);
   },
 
   createAppointment: async (appointmentData: {
     date: string;
     time: string;
-    doctorName: string;
-    doctorSpecialty: string;
+    doctorId: number;
     patientName: string;
   }) => {
     return apiRequest('/appointments', {
       method: 'POST',
+      headers: { 'Idempotency-Key': crypto.randomUUID() },
       body: JSON.stringify(appointmentData),
     });
   },
 
-  approveAppointment: async (id: number) => {
-    return apiRequest(`/appointments/${id}/approve`, {
+  approveAppointment: async (id: number, version?: number) => {
+    const query = version !== undefined ? `?version=${version}` : '';
+    return apiRequest(`/appointments/${id}/approve${query}`, {
       method: 'PUT',
     });
   },
 
-  rejectAppointment: async (id: number) => {
-    return apiRequest(`/appointments/${id}/reject`, {
+  rejectAppointment: async (id: number, version?: number) => {
+    const query = version !== undefined ? `?version=${version}` : '';
+    return apiRequest(`/appointments/${id}/reject${query}`, {
       method: 'PUT',
     });
   },
 
-  cancelAppointment: async (id: number) => {
-    return apiRequest(`/appointments/${id}/cancel`, {
+  cancelAppointment: async (id: number, version?: number) => {
+    const query = version !== undefined ? `?version=${version}` : '';
+    return apiRequest(`/appointments/${id}/cancel${query}`, {
       method: 'PUT',
     });
   },
 
-  requestReschedule: async (id: number) => {
-    return apiRequest(`/appointments/${id}/request-reschedule`, {
+  requestReschedule: async (id: number, version?: number) => {
+    const query = version !== undefined ? `?version=${version}` : '';
+    return apiRequest(`/appointments/${id}/request-reschedule${query}`, {
       method: 'PUT',
     });
   },
 
   getRescheduleRequests: async () => {
-    return apiRequest('/appointments/reschedule-requests');
+    return apiRequestAllPages('/appointments/reschedule-requests');
   },
-};
\ No newline at end of file
+
+  bulkUpdateStatus: async (request: {
+    action: 'approve' | 'reject' | 'cancel';
+    ids?: number[];
+    status?: string;
+    doctorId?: number;
+    date?: string;
+  }) => {
+    return apiRequest('/appointments/bulk', {
+      method: 'POST',
+      body: JSON.stringify(request),
+    });
+  },
+
+  // Exportación para informes (solo administradores); status admite varios separados por comas
+  exportAppointments: async (params: ExportParams = {}) => {
+    return downloadExport('/appointments/export', params);
+  },
+
+  // Canal SSE de cambios de citas. Se usa fetch y no EventSource porque hace falta
+  // enviar el token; reconecta solo y devuelve la función para cerrar la suscripción.
+  subscribeToEvents: (
+    onEvent: (type: string, data: any) => void,
+    onReconnect?: () => void
+  ) => {
+    let controller: AbortController | null = null;
+    let stopped = false;
+    let connectedOnce = false;
+
+    const connect = async () => {
+      controller = new AbortController();
+      try {
+        const token = localStorage.getItem('token');
+        const response = await fetch(`${API_BASE_URL}/appointments/events`, {
+          headers: {
+            Accept: 'text/event-stream',
+            ...(token && { Authorization: `Bearer ${token}` }),
+          },
+          signal: controller.signal,
+        });
+        if (!response.ok || !response.body) {
+          throw new Error(`Error ${response.status}: ${response.statusText}`);
+        }
+        // Tras una desconexión se pudieron perder eventos: el llamador recarga su lista
+        if (connectedOnce && onReconnect) {
+          onReconnect();
+        }
+        connectedOnce = true;
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = '';
+        while (!stopped) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += decoder.decode(value, { stream: true });
+          let separator;
+          while ((separator = buffer.indexOf('\n\n')) >= 0) {
+            const frame = buffer.slice(0, separator);
+            buffer = buffer.slice(separator + 2);
+            let type = 'message';
+            let data = '';
+            frame.split('\n').forEach(line => {
+              if (line.startsWith('event:')) type = line.slice(6).trim();
+              else if (line.startsWith('data:')) data += line.slice(5);
+            });
+            if (type === 'replaced') {
+              // El mismo usuario abrió más conexiones de las permitidas: esta deja de escuchar
+              stopped = true;
+            } else if (data && type !== 'ready') {
+              onEvent(type, JSON.parse(data));
+            }
+          }
+        }
+      } catch (error) {
+        if (stopped) return;
+        console.error('Conexión de eventos de citas perdida:', error);
+      }
+      if (!stopped) {
+        setTimeout(connect, 3000);
+      }
+    };
+
+    connect();
+    return () => {
+      stopped = true;
+      controller?.abort();
+    };
+  },
+};
+// Servicios de análisis de IA: el POST solo encola (202); el resultado se consulta con getAnalysis
+// hasta que el estado sea 'done' o 'dead'. Con la cola llena el servidor responde 503.
+export const analysisService = {
+  requestAnalysis: async (patientId: number, file: File) => {
+    const body = new FormData();
+    body.append('patientId', String(patientId));
+    body.append('file', file);
+    const token = localStorage.getItem('token');
+    // Sin Content-Type: el navegador añade el boundary del multipart
+    const response = await fetch(`${API_BASE_URL}/analyses`, {
+      method: 'POST',
+      headers: token ? { Authorization: `Bearer ${token}` } : {},
+      body,
+    });
+    if (!response.ok) {
+      throw new Error(`Error ${response.status}: ${response.statusText}`);
+    }
+    return response.json();
+  },
+
+  getAnalysis: async (id: number) => {
+    return apiRequest(`/analyses/${id}`);
+  },
+
+  getAnalyses: async (params: { patientId?: number; status?: string; limit?: number } = {}) => {
+    const query = new URLSearchParams();
+    Object.entries(params).forEach(([key, value]) => {
+      if (value !== undefined && value !== null && value !== '') {
+        query.append(key, String(value));
+      }
+    });
+    return apiRequest(`/analyses?${query.toString()}`);
+  },
+
+  retryAnalysis: async (id: number) => {
+    return apiRequest(`/analyses/${id}/retry`, {
+      method: 'POST',
+    });
+  },
+};